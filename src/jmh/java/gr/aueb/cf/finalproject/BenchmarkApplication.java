@@ -0,0 +1,82 @@
+package gr.aueb.cf.finalproject;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.model.static_data.Country;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Boots the application without a web server against an in-memory H2 database in MySQL mode,
+ * seeded with the countries of sql/countries.sql and the requested number of users, spread over three of them.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(int users) {
+        return start(users, new String[0]);
+    }
+
+    /**
+     * @param properties extra properties of the benchmark, as --name=value arguments.
+     */
+    public static ConfigurableApplicationContext start(int users, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                // countries come from sql/countries.sql before startup, the registry refuses to start without them
+                "--spring.jpa.properties.hibernate.globally_quoted_identifiers=false",
+                "--spring.jpa.defer-datasource-initialization=true",
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.data-locations=classpath:sql/countries.sql",
+                "--spring.sql.init.encoding=UTF-8",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FinalProjectApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        seed(context, users);
+        return context;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int users) {
+        CountryRepository countryRepository = context.getBean(CountryRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<Country> countries = Stream.of("Greece", "Italy", "Spain")
+                .map(name -> countryRepository.findByName(name).orElseThrow())
+                .toList();
+
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setPassword("{noop}not-a-real-hash");
+            user.setFirstname("First" + i);
+            user.setLastname("Last" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setBirthdate(LocalDate.of(1990, 1, 1).plusDays(i % 3650));
+            user.setRole(Role.USER);
+            user.setIsActive(true);
+            user.setCountry(countries.get(i % countries.size()));
+            batch.add(user);
+            if (batch.size() == 1000) {
+                userRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        userRepository.saveAll(batch);
+    }
+}
@@ -0,0 +1,103 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.security.JwtKeyRing;
+import gr.aueb.cf.finalproject.security.JwtProperties;
+import gr.aueb.cf.finalproject.security.JwtService;
+import gr.aueb.cf.finalproject.security.TokenRevocationRegistry;
+import gr.aueb.cf.finalproject.security.VerifiedClaimsCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request cost of the JWT filter with a warm claims cache, authenticating either from
+ * the token's claims or through the user details cache. "anonymous" is the baseline of a
+ * request without a token, i.e. the cost of the mock request and chain themselves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "5ce98d378ec88ea09ba8bcd511ef23645f04cc8e70b9134b98723a53c275bbc5";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"false", "true"})
+    private boolean claimsTrusted;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setKeys(Map.of("k1", SECRET));
+        jwtProperties.setActiveKeyId("k1");
+        jwtProperties.setExpiration(10800000);
+        JwtService jwtService = new JwtService(new JwtKeyRing(jwtProperties), jwtProperties);
+
+        AuthenticationProperties authenticationProperties = new AuthenticationProperties();
+        authenticationProperties.setClaimsTrusted(claimsTrusted);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserDetailsCache userDetailsCache = new UserDetailsCache(authenticationProperties, meterRegistry);
+        AuthenticatedUser principal = AuthenticatedUser.from(benchmarkUser());
+        UserDetailsService userDetailsService = username -> userDetailsCache.get(username, key -> principal);
+
+        filter = new JwtAuthenticationFilter(jwtService, new VerifiedClaimsCache(jwtService, meterRegistry, 10000),
+                userDetailsService, new TokenRevocationRegistry(jwtProperties), authenticationProperties);
+        authorization = "Bearer " + jwtService.generateToken("benchmark", "USER", "Bench", "Mark",
+                "benchmark@example.com", "1990-01-01", "Greece");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticated() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.addHeader("Authorization", authorization);
+        return filter(request);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse anonymous() throws ServletException, IOException {
+        return filter(new MockHttpServletRequest("GET", "/api/users"));
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, NO_OP_CHAIN);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+
+    private static User benchmarkUser() {
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setPassword("{noop}not-a-real-hash");
+        user.setRole(Role.USER);
+        user.setIsActive(true);
+        return user;
+    }
+}
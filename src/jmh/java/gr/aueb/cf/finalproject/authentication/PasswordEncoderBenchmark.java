@@ -0,0 +1,44 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify latency of a single login per algorithm and cost, to pick app.password-hashing.* for the hardware at hand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "Benchmark@2024";
+
+    @Param({"bcrypt-10", "bcrypt-11", "bcrypt-12", "bcrypt-13", "bcrypt-14", "pbkdf2"})
+    private String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String encodedPassword;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = encoder.startsWith("bcrypt-")
+                ? new CostAwareBCryptPasswordEncoder(Integer.parseInt(encoder.substring("bcrypt-".length())))
+                : Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8();
+        encodedPassword = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, encodedPassword);
+    }
+}
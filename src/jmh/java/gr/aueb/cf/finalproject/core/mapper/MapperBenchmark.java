@@ -0,0 +1,69 @@
+package gr.aueb.cf.finalproject.core.mapper;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.model.static_data.Country;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import gr.aueb.cf.finalproject.service.CountryRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of mapping one user entity to its read-only DTO, country name included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private Mapper mapper;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        Country greece = new Country(1L, "Greece", "GR", new HashSet<>());
+        CountryRepository countryRepository = mock(CountryRepository.class);
+        when(countryRepository.findAll()).thenReturn(List.of(greece,
+                new Country(2L, "Italy", "IT", new HashSet<>()),
+                new Country(3L, "Spain", "ES", new HashSet<>())));
+        Cache cache = mock(Cache.class);
+        when(cache.unwrap(org.hibernate.Cache.class)).thenReturn(mock(org.hibernate.Cache.class));
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        CountryRegistry countryRegistry = new CountryRegistry(countryRepository, entityManagerFactory);
+        countryRegistry.reload();
+        mapper = new Mapper(countryRepository, null, countryRegistry);
+
+        user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setFirstname("Bench");
+        user.setLastname("Mark");
+        user.setEmail("benchmark@example.com");
+        user.setBirthdate(LocalDate.of(1990, 1, 1));
+        user.setRole(Role.USER);
+        user.setIsActive(true);
+        user.setCountry(greece);
+    }
+
+    @Benchmark
+    public UserReadOnlyDTO mapToUserReadOnlyDTO() {
+        return mapper.mapToUserReadOnlyDTO(user);
+    }
+}
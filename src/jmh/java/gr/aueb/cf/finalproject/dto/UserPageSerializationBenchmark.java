@@ -0,0 +1,52 @@
+package gr.aueb.cf.finalproject.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of one page of users as returned by GET /api/users,
+ * using an ObjectMapper configured the way Spring MVC configures its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserPageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private Page<UserReadOnlyDTO> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<UserReadOnlyDTO> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(new UserReadOnlyDTO(i, "user" + i, "First" + i, "Last" + i,
+                    "user" + i + "@example.com", "Greece", true, 0));
+        }
+        page = new PageImpl<>(users, PageRequest.of(0, size), 100_000);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,71 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.BenchmarkApplication;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and, with the gc profiler, allocation per page of users:
+ * hydrating entities and mapping them (before) against the DTO projection (after).
+ * The query cache is off, so that every page reaches the database; cache hits are measured by
+ * {@link UserListingQueryCacheBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserListingBenchmark {
+
+    @Param({"20", "100"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private Mapper mapper;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(10_000, "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        userRepository = context.getBean(UserRepository.class);
+        mapper = context.getBean(Mapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<UserReadOnlyDTO> entityPage() {
+        return transactionTemplate.execute(status ->
+                userRepository.findAll(PageRequest.of(10, size)).map(mapper::mapToUserReadOnlyDTO));
+    }
+
+    @Benchmark
+    public Page<UserReadOnlyDTO> projectionPage() {
+        return readOnlyTransactionTemplate.execute(status ->
+                userRepository.findAllReadOnly(PageRequest.of(10, size)));
+    }
+}
@@ -0,0 +1,57 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.BenchmarkApplication;
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DTO projection of {@link UserListingBenchmark} with the query cache on, as configured for the application:
+ * every page after the first is a hit, while the users table does not change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserListingQueryCacheBenchmark {
+
+    @Param({"20", "100"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(10_000, "--spring.jpa.properties.hibernate.cache.use_query_cache=true");
+        userRepository = context.getBean(UserRepository.class);
+        readOnlyTransactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<UserReadOnlyDTO> cachedProjectionPage() {
+        return readOnlyTransactionTemplate.execute(status ->
+                userRepository.findAllReadOnly(PageRequest.of(10, size)));
+    }
+}
@@ -0,0 +1,96 @@
+package gr.aueb.cf.finalproject.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares signing and verifying with a key and parser built per call (the previous JwtService)
+ * against the precomputed key and shared parser of {@link JwtKeyRing}.
+ * Both sides sign the same seven claims, so that only the key handling differs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "5ce98d378ec88ea09ba8bcd511ef23645f04cc8e70b9134b98723a53c275bbc5";
+    private static final long EXPIRATION = 10800000;
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setKeys(Map.of("k1", SECRET));
+        jwtProperties.setActiveKeyId("k1");
+        jwtProperties.setExpiration(EXPIRATION);
+        jwtService = new JwtService(new JwtKeyRing(jwtProperties), jwtProperties);
+        token = sign();
+    }
+
+    @Benchmark
+    public String legacySign() {
+        var claims = new HashMap<String, Object>();
+        claims.put("role", "USER");
+        claims.put("firstname", "Bench");
+        claims.put("lastname", "Mark");
+        claims.put("email", "benchmark@example.com");
+        claims.put("dateOfBirth", "1990-01-01");
+        claims.put("countryName", "Greece");
+        claims.put("username", "benchmark");
+        return Jwts
+                .builder()
+                .setIssuer("self")
+                .setClaims(claims)
+                .setSubject("benchmark")
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
+                .signWith(legacySignInKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtService.generateToken("benchmark", "USER", "Bench", "Mark",
+                "benchmark@example.com", "1990-01-01", "Greece");
+    }
+
+    @Benchmark
+    public Claims legacyVerify() {
+        return Jwts
+                .parserBuilder()
+                .setSigningKey(legacySignInKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public VerifiedClaims verify() {
+        return jwtService.verify(token);
+    }
+
+    private static Key legacySignInKey() {
+        byte[] keyBytes = Decoders.BASE64.decode(SECRET);
+        return Keys.hmacShaKeyFor(keyBytes);
+    }
+}
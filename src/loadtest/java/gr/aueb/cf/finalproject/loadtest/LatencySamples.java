@@ -0,0 +1,69 @@
+package gr.aueb.cf.finalproject.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies and errors of one endpoint as seen by one client thread.
+ * Responses rejected by a rate limit (429) are counted on their own and left out of the latencies,
+ * so that the percentiles describe requests that were actually served.
+ * Not thread safe: every client records into its own instance and they are merged at the end.
+ */
+public class LatencySamples {
+
+    private long[] nanos = new long[1024];
+    private int count;
+    private long errors;
+    private long limited;
+
+    public void record(long elapsedNanos, int status) {
+        if (status == 429) {
+            limited++;
+            return;
+        }
+        if (status / 100 != 2) {
+            errors++;
+        }
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = elapsedNanos;
+    }
+
+    public void addAll(LatencySamples other) {
+        if (count + other.count > nanos.length) {
+            nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, count + other.count));
+        }
+        System.arraycopy(other.nanos, 0, nanos, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        limited += other.limited;
+    }
+
+    /**
+     * @param seconds the length of the measured window.
+     * @return the summary of the samples.
+     */
+    public EndpointStats summarize(String endpoint, double seconds) {
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        return new EndpointStats(endpoint, count, errors, limited, count / seconds,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * The summary of one endpoint, latencies in milliseconds. The rate limited responses
+     * are not part of requests, throughput or latencies.
+     */
+    public record EndpointStats(String endpoint, long requests, long errors, long limited, double throughput,
+                                double p50, double p99, double max) {
+    }
+}
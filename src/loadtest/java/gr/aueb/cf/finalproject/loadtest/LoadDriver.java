@@ -0,0 +1,193 @@
+package gr.aueb.cf.finalproject.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives the running application with concurrent clients, each looping over operations picked at
+ * random by weight. Nothing is recorded during the warmup, afterwards every request's latency is
+ * recorded per endpoint. Clients run on platform threads whatever the server's thread mode.
+ * <p>
+ * The login rate limiter stays on. Every client logs in with its own X-Forwarded-For address from the
+ * 198.18.0.0/15 benchmarking range, which the server takes from the trusted loopback proxy, so each
+ * client fills its own per-address bucket as it would in production.
+ */
+public class LoadDriver {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String ADMIN_ADDRESS = "198.19.255.254";
+
+    private final String baseUrl;
+    private final LoadTestOptions options;
+    private final List<Operation> operations;
+    private final HttpClient httpClient;
+
+    public LoadDriver(String baseUrl, LoadTestOptions options) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+        this.operations = options.weightedOperations();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * @return the merged samples of every client by endpoint.
+     */
+    public Map<String, LatencySamples> run() throws Exception {
+        String adminToken = login(UserSeeder.ADMIN, ADMIN_ADDRESS).path("token").asText();
+        long measureFrom = System.nanoTime() + options.warmup().toNanos();
+        long until = measureFrom + options.duration().toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(options.clients());
+        try {
+            List<Future<Map<String, LatencySamples>>> results = new ArrayList<>();
+            for (int i = 0; i < options.clients(); i++) {
+                int client = i;
+                results.add(clients.submit(() -> runClient(client, adminToken, measureFrom, until)));
+            }
+            Map<String, LatencySamples> merged = new LinkedHashMap<>();
+            for (Future<Map<String, LatencySamples>> result : results) {
+                result.get().forEach((endpoint, samples) ->
+                        merged.computeIfAbsent(endpoint, key -> new LatencySamples()).addAll(samples));
+            }
+            return merged;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private Map<String, LatencySamples> runClient(int client, String adminToken, long measureFrom, long until)
+            throws IOException, InterruptedException {
+        Map<String, LatencySamples> samples = new LinkedHashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String username = UserSeeder.user(client);
+        String churnUsername = UserSeeder.churnUser(client);
+        String address = clientAddress(client);
+        JsonNode tokens = login(username, address);
+        String token = tokens.path("token").asText();
+        String refreshToken = tokens.path("refreshToken").asText();
+
+        long now;
+        while ((now = System.nanoTime()) < until) {
+            boolean measured = now >= measureFrom;
+            switch (operations.get(random.nextInt(operations.size()))) {
+                case LOGIN -> call("login", samples, measured,
+                        loginRequest(UserSeeder.user(random.nextInt(options.users())), address));
+                case REFRESH -> {
+                    HttpResponse<String> response = call("refresh", samples, measured, post("/api/auth/refresh", null,
+                            OBJECT_MAPPER.createObjectNode().put("refreshToken", refreshToken).toString()));
+                    if (response.statusCode() == 200) {
+                        JsonNode body = OBJECT_MAPPER.readTree(response.body());
+                        token = body.path("token").asText(token);
+                        refreshToken = body.path("refreshToken").asText(refreshToken);
+                    }
+                }
+                case LIST -> call("list", samples, measured,
+                        get("/api/users?page=" + random.nextInt(50) + "&size=20", adminToken));
+                case UPDATE -> {
+                    HttpResponse<String> response = call("update", samples, measured,
+                            put("/api/user/" + username + "/update", token, update(client, random.nextInt(1000))));
+                    if (response.statusCode() == 200) {
+                        token = OBJECT_MAPPER.readTree(response.body()).path("token").asText(token);
+                    }
+                }
+                case DEACTIVATE -> {
+                    call("deactivate", samples, measured, put("/api/user/" + churnUsername + "/deactivate", adminToken, ""));
+                    call("activate", samples, measured, put("/api/user/" + churnUsername + "/activate", adminToken, ""));
+                }
+            }
+        }
+        return samples;
+    }
+
+    private HttpResponse<String> call(String endpoint, Map<String, LatencySamples> samples, boolean measured,
+                                      HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        long elapsed = System.nanoTime() - start;
+        if (measured) {
+            samples.computeIfAbsent(endpoint, key -> new LatencySamples())
+                    .record(elapsed, response.statusCode());
+        }
+        return response;
+    }
+
+    private JsonNode login(String username, String address) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(loginRequest(username, address), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login of " + username + " failed with " + response.statusCode());
+        }
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+
+    /**
+     * @return a distinct address per client, 256 clients per /24.
+     */
+    private static String clientAddress(int client) {
+        return "198.18." + (client / 256) + "." + (client % 256);
+    }
+
+    private HttpRequest loginRequest(String username, String address) {
+        return request("/api/auth/login", null)
+                .header("X-Forwarded-For", address)
+                .POST(HttpRequest.BodyPublishers.ofString(credentials(username)))
+                .build();
+    }
+
+    private static String credentials(String username) {
+        return OBJECT_MAPPER.createObjectNode()
+                .put("username", username)
+                .put("password", UserSeeder.PASSWORD)
+                .toString();
+    }
+
+    private static String update(int client, int revision) {
+        return OBJECT_MAPPER.createObjectNode()
+                .put("oldPassword", UserSeeder.PASSWORD)
+                .put("firstname", "First" + revision)
+                .put("lastname", "Last" + client)
+                .put("email", UserSeeder.user(client) + "@loadtest.example")
+                .put("birthdate", "1990-01-01")
+                .put("countryName", "Greece")
+                .toString();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return request(path, token).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest put(String path, String token, String body) {
+        return request(path, token).PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,105 @@
+package gr.aueb.cf.finalproject.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gr.aueb.cf.finalproject.FinalProjectApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the application on a random port against an in-memory database (the "loadtest" profile),
+ * seeds it and drives it with {@link LoadDriver}, once per requested thread mode.
+ * Prints p50/p99 latency and throughput per endpoint, with the responses rejected by the login rate
+ * limiter counted apart from the latencies, writes them as JSON to the report
+ * directory and, when both thread modes ran, prints them side by side.
+ * <p>
+ * Run with ./gradlew loadTest -Pusers=10000 -Pclients=64 -Pduration=60s -Pthreads=platform,virtual
+ */
+public final class LoadTestApplication {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestApplication.class);
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Map<String, List<LatencySamples.EndpointStats>> results = new LinkedHashMap<>();
+        for (String threadMode : options.threadModes()) {
+            results.put(threadMode, run(options, threadMode));
+        }
+        if (results.size() > 1) {
+            printComparison(results);
+        }
+        System.exit(0);
+    }
+
+    private static List<LatencySamples.EndpointStats> run(LoadTestOptions options, String threadMode) throws Exception {
+        String profiles = threadMode.equals("virtual") ? "loadtest,virtual" : "loadtest";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FinalProjectApplication.class)
+                .run("--spring.profiles.active=" + profiles,
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest-" + threadMode + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--app.password-hashing.bcrypt-cost=" + options.bcryptCost())) {
+            UserSeeder.seed(context, options.users(), options.clients());
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LOGGER.info("Seeded {} users, running {} clients for {} ({} warmup) on {} threads",
+                    options.users(), options.clients(), options.duration(), options.warmup(), threadMode);
+
+            Map<String, LatencySamples> samples = new LoadDriver("http://localhost:" + port, options).run();
+            double seconds = options.duration().toMillis() / 1000.0;
+            List<LatencySamples.EndpointStats> stats = new ArrayList<>();
+            samples.forEach((endpoint, endpointSamples) -> stats.add(endpointSamples.summarize(endpoint, seconds)));
+
+            print(threadMode, stats);
+            write(options, threadMode, stats);
+            return stats;
+        }
+    }
+
+    private static void print(String threadMode, List<LatencySamples.EndpointStats> stats) {
+        System.out.printf("%n%s threads%n", threadMode);
+        System.out.printf("%-12s %10s %8s %8s %12s %10s %10s %10s%n", "endpoint", "requests", "errors", "429s",
+                "req/s", "p50 ms", "p99 ms", "max ms");
+        for (LatencySamples.EndpointStats stat : stats) {
+            System.out.printf("%-12s %10d %8d %8d %12.1f %10.2f %10.2f %10.2f%n", stat.endpoint(), stat.requests(),
+                    stat.errors(), stat.limited(), stat.throughput(), stat.p50(), stat.p99(), stat.max());
+        }
+        System.out.println("login rate limiting is on, 429 responses are counted apart and not part of the latencies");
+    }
+
+    private static void printComparison(Map<String, List<LatencySamples.EndpointStats>> results) {
+        List<LatencySamples.EndpointStats> platform = results.get("platform");
+        List<LatencySamples.EndpointStats> virtual = results.get("virtual");
+        System.out.printf("%nplatform vs virtual%n");
+        System.out.printf("%-12s %12s %12s %12s %12s%n", "endpoint", "req/s plat", "req/s virt", "p99 plat", "p99 virt");
+        for (LatencySamples.EndpointStats stat : platform) {
+            virtual.stream().filter(other -> other.endpoint().equals(stat.endpoint())).findFirst().ifPresent(other ->
+                    System.out.printf("%-12s %12.1f %12.1f %12.2f %12.2f%n", stat.endpoint(),
+                            stat.throughput(), other.throughput(), stat.p99(), other.p99()));
+        }
+    }
+
+    private static void write(LoadTestOptions options, String threadMode, List<LatencySamples.EndpointStats> stats)
+            throws IOException {
+        Path directory = Files.createDirectories(Path.of(options.reportDir()));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threads", threadMode);
+        report.put("users", options.users());
+        report.put("clients", options.clients());
+        report.put("durationSeconds", options.duration().toSeconds());
+        report.put("mix", options.mix());
+        report.put("endpoints", stats);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directory.resolve("loadtest-" + threadMode + ".json").toFile(), report);
+    }
+}
@@ -0,0 +1,73 @@
+package gr.aueb.cf.finalproject.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a load test run, parsed from --name=value arguments.
+ * @param users the number of synthetic users to seed.
+ * @param clients the number of concurrent clients.
+ * @param warmup how long to run before latencies are recorded.
+ * @param duration how long latencies are recorded.
+ * @param mix the relative weight of each operation.
+ * @param threadModes platform and/or virtual, one run per mode.
+ * @param bcryptCost the BCrypt cost of the seeded passwords and of the application.
+ * @param reportDir where the JSON report of each run is written.
+ */
+public record LoadTestOptions(int users, int clients, Duration warmup, Duration duration,
+                              Map<Operation, Integer> mix, List<String> threadModes,
+                              int bcryptCost, String reportDir) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("users", "10000")),
+                Integer.parseInt(values.getOrDefault("clients", "64")),
+                Duration.parse("PT" + values.getOrDefault("warmup", "15s")),
+                Duration.parse("PT" + values.getOrDefault("duration", "60s")),
+                parseMix(values.getOrDefault("mix", "login=5,refresh=5,list=50,update=30,deactivate=10")),
+                List.of(values.getOrDefault("threads", "platform,virtual").split(",")),
+                Integer.parseInt(values.getOrDefault("bcrypt-cost", "10")),
+                values.getOrDefault("report-dir", "build/reports/loadtest"));
+        if (options.users() < options.clients()) {
+            throw new IllegalArgumentException("users must be at least the number of clients");
+        }
+        for (String mode : options.threadModes()) {
+            if (!mode.equals("platform") && !mode.equals("virtual")) {
+                throw new IllegalArgumentException("Unknown thread mode " + mode);
+            }
+        }
+        return options;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * @return the operations repeated by weight, to pick one uniformly at random.
+     */
+    public List<Operation> weightedOperations() {
+        List<Operation> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        return operations;
+    }
+}
@@ -0,0 +1,14 @@
+package gr.aueb.cf.finalproject.loadtest;
+
+/**
+ * The operations a load test client mixes.
+ * A deactivate operation is followed by the activation of the same user,
+ * both are reported separately.
+ */
+public enum Operation {
+    LOGIN,
+    REFRESH,
+    LIST,
+    UPDATE,
+    DEACTIVATE
+}
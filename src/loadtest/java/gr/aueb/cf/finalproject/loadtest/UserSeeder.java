@@ -0,0 +1,76 @@
+package gr.aueb.cf.finalproject.loadtest;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts the synthetic users of a load test straight through JDBC.
+ * All of them share one password hashed once up front, so seeding N users costs one BCrypt round.
+ * Regular users log in, list and update themselves; every client also gets a "churn" user
+ * of its own that is deactivated and activated again by the admin.
+ */
+public final class UserSeeder {
+
+    public static final String PASSWORD = "LoadTest@2024";
+    public static final String ADMIN = "loadtest-admin";
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT = "INSERT INTO users (id, username, password, firstname, lastname, email, " +
+            "birthdate, role, is_active, country_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private UserSeeder() {
+    }
+
+    public static String user(int index) {
+        return "lt-user-" + index;
+    }
+
+    public static String churnUser(int index) {
+        return "lt-churn-" + index;
+    }
+
+    public static void seed(ConfigurableApplicationContext context, int users, int churnUsers) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<Long> countryIds = jdbcTemplate.queryForList("SELECT id FROM countries ORDER BY id", Long.class);
+        if (countryIds.isEmpty()) {
+            throw new IllegalStateException("No countries were loaded from sql/countries.sql");
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        long id = 1;
+        batch.add(row(id++, ADMIN, passwordHash, Role.ADMIN, countryIds.get(0), now));
+        for (int i = 0; i < users; i++) {
+            batch.add(row(id++, user(i), passwordHash, Role.USER, countryIds.get(i % countryIds.size()), now));
+            flushIfFull(jdbcTemplate, batch);
+        }
+        for (int i = 0; i < churnUsers; i++) {
+            batch.add(row(id++, churnUser(i), passwordHash, Role.USER, countryIds.get(i % countryIds.size()), now));
+            flushIfFull(jdbcTemplate, batch);
+        }
+        jdbcTemplate.batchUpdate(INSERT, batch);
+        // keep the pooled users_seq generator clear of the ids inserted above
+        jdbcTemplate.execute("ALTER SEQUENCE users_seq RESTART WITH " + (id + 50));
+    }
+
+    private static Object[] row(long id, String username, String passwordHash, Role role, Long countryId, Timestamp now) {
+        return new Object[] {id, username, passwordHash, "First" + id, "Last" + id, username + "@loadtest.example",
+                Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(id % 15000)), role.name(), true, countryId, now, now};
+    }
+
+    private static void flushIfFull(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        if (batch.size() >= BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(INSERT, batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.security.VerifiedClaims;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Lightweight, immutable principal that does not hold on to a managed entity.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class AuthenticatedUser implements UserDetails {
+
+    private final String username;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+    private final boolean enabled;
+
+    /**
+     * Copies what authentication needs out of the entity, leaving the entity and its country behind.
+     */
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getUsername(), user.getPassword(),
+                List.of(new SimpleGrantedAuthority(user.getRole().name())), user.isEnabled());
+    }
+
+    /**
+     * Builds the principal straight from a verified token. It carries no password.
+     */
+    public static AuthenticatedUser fromClaims(VerifiedClaims claims) {
+        return new AuthenticatedUser(claims.subject(), null,
+                List.of(new SimpleGrantedAuthority(claims.role())), true);
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+}
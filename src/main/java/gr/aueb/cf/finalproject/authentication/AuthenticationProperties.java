@@ -0,0 +1,25 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Authentication settings bound from the app.authentication.* properties.
+ * When {@link #claimsTrusted} is on, a request with a valid token is authenticated
+ * from the token's own claims instead of loading the user from the database.
+ * Otherwise users are loaded through a bounded cache sized by {@link #userCacheMaximumSize}
+ * whose entries expire after {@link #userCacheTtl}.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.authentication")
+@Getter
+@Setter
+public class AuthenticationProperties {
+    private boolean claimsTrusted = false;
+    private long userCacheMaximumSize = 10000;
+    private Duration userCacheTtl = Duration.ofMinutes(5);
+}
@@ -1,24 +1,34 @@
 package gr.aueb.cf.finalproject.authentication;
 
 import gr.aueb.cf.finalproject.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.finalproject.core.exceptions.AppServiceUnavailableException;
 import gr.aueb.cf.finalproject.dto.AuthenticationRequestDTO;
 import gr.aueb.cf.finalproject.dto.AuthenticationResponseDTO;
 import gr.aueb.cf.finalproject.model.User;
 import gr.aueb.cf.finalproject.repository.UserRepository;
 import gr.aueb.cf.finalproject.security.JwtService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class AuthenticationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationService.class);
     private final UserRepository userRepository;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final PasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
+    private final RefreshTokenService refreshTokenService;
 
+    @Timed(value = "auth.authenticate", histogram = true)
     public AuthenticationResponseDTO authenticate(AuthenticationRequestDTO authenticationRequestDTO)
     throws AppObjectNotAuthorizedException {
         Authentication authentication = authenticationManager.authenticate(
@@ -26,10 +36,30 @@ public class AuthenticationService {
                         authenticationRequestDTO.getPassword())
         );
 
-        User user = userRepository.findByUsername(authentication.getName())
+        User user = userRepository.loadByUsername(authentication.getName())
                 .orElseThrow(() -> new AppObjectNotAuthorizedException("User","User not found"));
+        upgradePasswordHash(user, authenticationRequestDTO.getPassword());
 
         String token = jwtService.generateToken(authentication.getName(),user.getRole().name(),user.getFirstname(),user.getLastname(),user.getEmail(),user.getBirthdate().toString(),user.getCountry().getName());
-        return new AuthenticationResponseDTO(token);
+        return new AuthenticationResponseDTO(token, refreshTokenService.issue(user));
+    }
+
+    /**
+     * Re-encodes the password with the current target algorithm and cost when the stored hash
+     * is older. Only possible right after a successful login, while the raw password is known.
+     * Skipped, and retried on a later login, when the hashing pool is saturated.
+     */
+    private void upgradePasswordHash(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordEncoder.encode(rawPassword));
+            userRepository.save(user);
+            userDetailsCache.evictAfterCommit(user.getUsername());
+            LOGGER.info("Password hash upgraded for user: {}", user.getUsername());
+        } catch (AppServiceUnavailableException e) {
+            LOGGER.warn("Password hash upgrade postponed for user: {}", user.getUsername());
+        }
     }
 }
@@ -10,11 +10,13 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
-        return userRepository.findByUsername(username).orElseThrow(()
-                -> new UsernameNotFoundException("User with username " + username + " not found"));
+        return userDetailsCache.get(username, key -> userRepository.loadByUsername(key)
+                .map(AuthenticatedUser::from)
+                .orElseThrow(() -> new UsernameNotFoundException("User with username " + key + " not found")));
     }
 }
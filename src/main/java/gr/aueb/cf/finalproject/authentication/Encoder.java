@@ -1,20 +1,37 @@
 package gr.aueb.cf.finalproject.authentication;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
 
 /**
  * Encoding password for database entry.
+ * New hashes are stored as {id}hash with the configured algorithm and cost. Hashes stored
+ * before ids were recorded are plain BCrypt and are still matched as such.
+ * Hashing runs on the bounded pool of {@link BoundedPasswordEncoder}, never on the request thread.
  */
 @Configuration
 @RequiredArgsConstructor
 public class Encoder {
 
+    private final PasswordHashingProperties passwordHashingProperties;
+    private final MeterRegistry meterRegistry;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+        CostAwareBCryptPasswordEncoder bcrypt = new CostAwareBCryptPasswordEncoder(passwordHashingProperties.getBcryptCost());
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder delegatingPasswordEncoder =
+                new DelegatingPasswordEncoder(passwordHashingProperties.getAlgorithm(), encoders);
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, passwordHashingProperties, meterRegistry);
     }
 }
@@ -1,6 +1,10 @@
 package gr.aueb.cf.finalproject.authentication;
 
+import gr.aueb.cf.finalproject.core.logging.LogRateLimiter;
 import gr.aueb.cf.finalproject.security.JwtService;
+import gr.aueb.cf.finalproject.security.TokenRevocationRegistry;
+import gr.aueb.cf.finalproject.security.VerifiedClaims;
+import gr.aueb.cf.finalproject.security.VerifiedClaimsCache;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -19,13 +23,22 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    // expired and invalid tokens arrive in bursts, one warning per interval is enough
+    private static final LogRateLimiter EXPIRED_TOKEN_LOG = new LogRateLimiter(Duration.ofSeconds(10));
+    private static final LogRateLimiter INVALID_TOKEN_LOG = new LogRateLimiter(Duration.ofSeconds(10));
+    private static final String EXPIRED_TOKEN_BODY = "{\"code\": \"expired token\", \"message\": \"The token has expired\"}";
+    private static final String INVALID_TOKEN_BODY = "{\"code\": \"invalidToken\", \"description\": \"The token is not valid\"}";
     private final JwtService jwtService;
+    private final VerifiedClaimsCache verifiedClaimsCache;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final AuthenticationProperties authenticationProperties;
 
     @Override
     protected void doFilterInternal(
@@ -36,7 +49,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         String jwt;
         String username;
-        String userRole;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -45,13 +57,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            username = jwtService.extractSubject(jwt);
-            userRole = jwtService.getStringClaim(jwt, "role");
+            VerifiedClaims claims = verifiedClaimsCache.verify(jwt);
+            username = claims.subject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                if (tokenRevocationRegistry.isRevoked(claims)) {
+                    LOGGER.warn("Token is revoked: {}", request.getRequestURI());
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                UserDetails userDetails = authenticationProperties.isClaimsTrusted() && claims.role() != null
+                        ? AuthenticatedUser.fromClaims(claims)
+                        : userDetailsService.loadUserByUsername(username);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (jwtService.isTokenValid(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -60,22 +79,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 } else {
-                    LOGGER.warn("Token is not valid" + request.getRequestURI());
+                    LOGGER.warn("Token is not valid: {}", request.getRequestURI());
                 }
             }
         } catch (ExpiredJwtException e) {
-            LOGGER.warn("WARN: Expired token ", e);
+            long suppressed = EXPIRED_TOKEN_LOG.tryAcquire();
+            if (suppressed >= 0) {
+                LOGGER.warn("Expired token: {} ({} more since the last warning)", request.getRequestURI(), suppressed);
+            }
             response.setStatus(HttpStatus.UNAUTHORIZED.value());
             response.setContentType("application/json");
-            String jsonBody = "{\"code\": \"expired token\", \"message\"" + e.getMessage() + "\"}";
-            response.getWriter().write(jsonBody);
+            response.getWriter().write(EXPIRED_TOKEN_BODY);
             return;
         } catch (Exception e) {
-            LOGGER.warn("WARN: Something went wrong while parsing JWT ", e);
+            long suppressed = INVALID_TOKEN_LOG.tryAcquire();
+            if (suppressed >= 0) {
+                LOGGER.warn("Invalid token: {}: {} ({} more since the last warning)",
+                        request.getRequestURI(), e.toString(), suppressed);
+            }
+            LOGGER.debug("Invalid token", e);
             response.setStatus(HttpStatus.FORBIDDEN.value());
             response.setContentType("application/json");
-            String jsonBody = "{\"code\": \"invalidToken\", \"description\"" + e.getMessage() + "\"}";
-            response.getWriter().write(jsonBody);
+            response.getWriter().write(INVALID_TOKEN_BODY);
             return;
         }
         filterChain.doFilter(request, response);
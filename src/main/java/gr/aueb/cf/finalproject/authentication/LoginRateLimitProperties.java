@@ -0,0 +1,39 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Login rate limits, bound from the app.login-rate-limit.* properties.
+ * Each username and each client IP may attempt {@link #usernameLimit} / {@link #ipLimit} logins
+ * per period, all of which may be spent at once. After {@link #freeFailures} failed logins in a row
+ * a username is locked for {@link #backoffBase}, doubled on every further failure up to {@link #backoffMax}.
+ * Failures are forgotten after {@link #failureWindow} without attempts. At most
+ * {@link #maxTrackedKeys} usernames and as many IPs are tracked, least recently used first out.
+ * Behind a load balancer the client IP is the rightmost X-Forwarded-For hop that is not one of the
+ * {@link #trustedProxies} (addresses or CIDR ranges). The header is ignored on requests that do not
+ * come from a trusted proxy, so clients cannot pick their own address.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.login-rate-limit")
+@Getter
+@Setter
+public class LoginRateLimitProperties {
+    private boolean enabled = true;
+    private int usernameLimit = 10;
+    private Duration usernamePeriod = Duration.ofMinutes(1);
+    private int ipLimit = 60;
+    private Duration ipPeriod = Duration.ofMinutes(1);
+    private int freeFailures = 3;
+    private Duration backoffBase = Duration.ofSeconds(1);
+    private Duration backoffMax = Duration.ofMinutes(15);
+    private Duration failureWindow = Duration.ofMinutes(15);
+    private long maxTrackedKeys = 100_000;
+    private List<String> trustedProxies = new ArrayList<>();
+}
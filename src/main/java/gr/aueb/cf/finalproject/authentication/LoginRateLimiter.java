@@ -0,0 +1,249 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.aueb.cf.finalproject.core.exceptions.AppTooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Rejects login attempts before they reach the database or the password encoder.
+ * <p>
+ * Every username and client IP gets a token bucket, implemented as GCRA (generic cell rate
+ * algorithm): the bucket is a single "theoretical arrival time" advanced by compare-and-set,
+ * so concurrent attempts never take a lock. Buckets and failure counters live in bounded
+ * Caffeine maps; an evicted bucket comes back full, which is what it would have been anyway
+ * once it has not been touched for a whole period.
+ * <p>
+ * Failed logins additionally lock the username with an exponential backoff,
+ * see {@link LoginRateLimitProperties}.
+ */
+@Component
+public class LoginRateLimiter {
+
+    // only literal addresses are matched against the trusted proxies, a host name would be resolved through DNS
+    private static final Pattern IP_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F]*:[0-9a-fA-F:.]*");
+    private final LoginRateLimitProperties properties;
+    private final List<IpAddressMatcher> trustedProxies;
+    private final Cache<String, Gcra> usernameBuckets;
+    private final Cache<String, Gcra> ipBuckets;
+    private final Cache<String, Failures> failures;
+    private final Counter usernameRejections;
+    private final Counter ipRejections;
+    private final Counter backoffRejections;
+    private final Counter failedLogins;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public LoginRateLimiter(LoginRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock the source of {@link System#nanoTime()} readings, replaced by tests to control time.
+     */
+    LoginRateLimiter(LoginRateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.trustedProxies = properties.getTrustedProxies().stream().map(IpAddressMatcher::new).toList();
+        this.usernameBuckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedKeys())
+                .expireAfterAccess(properties.getUsernamePeriod())
+                .build();
+        this.ipBuckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedKeys())
+                .expireAfterAccess(properties.getIpPeriod())
+                .build();
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedKeys())
+                .expireAfterAccess(properties.getFailureWindow())
+                .build();
+        this.usernameRejections = rejections(meterRegistry, "username");
+        this.ipRejections = rejections(meterRegistry, "ip");
+        this.backoffRejections = rejections(meterRegistry, "backoff");
+        this.failedLogins = Counter.builder("login.failures")
+                .description("Failed login attempts")
+                .register(meterRegistry);
+        Gauge.builder("login.rate_limit.tracked", usernameBuckets, Cache::estimatedSize)
+                .tag("key", "username").register(meterRegistry);
+        Gauge.builder("login.rate_limit.tracked", ipBuckets, Cache::estimatedSize)
+                .tag("key", "ip").register(meterRegistry);
+        Gauge.builder("login.rate_limit.tracked", failures, Cache::estimatedSize)
+                .tag("key", "failures").register(meterRegistry);
+    }
+
+    /**
+     * Resolves the address the client IP bucket is keyed by.
+     * Every trusted proxy appends the address it received the request from to X-Forwarded-For,
+     * so walking the hops from the right, the first one that is not a trusted proxy is the client.
+     * Hops further left were sent by the client itself and are never used.
+     * @param remoteAddr the address of the connection.
+     * @param forwardedFor the X-Forwarded-For header, all values joined by commas, or null.
+     * @return the client address.
+     */
+    public String resolveClientIp(String remoteAddr, String forwardedFor) {
+        if (forwardedFor == null || forwardedFor.isBlank() || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !isTrustedProxy(hop)) {
+                return hop;
+            }
+        }
+        // every hop is a proxy of ours, the leftmost one is as close to the client as it gets
+        String first = hops.length == 0 ? "" : hops[0].trim();
+        return first.isEmpty() ? remoteAddr : first;
+    }
+
+    /**
+     * Takes one attempt from the client's and from the username's bucket.
+     * @param username the username of the attempt.
+     * @param clientIp the address of the client.
+     * @throws AppTooManyRequestsException when the username is backing off or either bucket is empty.
+     */
+    public void checkAttempt(String username, String clientIp) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        String usernameKey = usernameKey(username);
+
+        Failures failed = failures.getIfPresent(usernameKey);
+        if (failed != null && failed.blockedUntil.get() - now > 0) {
+            backoffRejections.increment();
+            throw tooManyRequests(failed.blockedUntil.get() - now);
+        }
+        long ipWait = ipBuckets.get(clientIp == null ? "" : clientIp,
+                key -> new Gcra(properties.getIpLimit(), properties.getIpPeriod(), now)).tryAcquire(now);
+        if (ipWait > 0) {
+            ipRejections.increment();
+            throw tooManyRequests(ipWait);
+        }
+        long usernameWait = usernameBuckets.get(usernameKey,
+                key -> new Gcra(properties.getUsernameLimit(), properties.getUsernamePeriod(), now)).tryAcquire(now);
+        if (usernameWait > 0) {
+            usernameRejections.increment();
+            throw tooManyRequests(usernameWait);
+        }
+    }
+
+    /**
+     * Counts a failed login and, past the free failures, locks the username for the next backoff step.
+     */
+    public void recordFailure(String username) {
+        failedLogins.increment();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        Failures failed = failures.get(usernameKey(username), key -> new Failures(now));
+        int count = failed.count.incrementAndGet();
+        int step = count - properties.getFreeFailures();
+        if (step > 0) {
+            long backoff = (long) Math.min(properties.getBackoffMax().toNanos(),
+                    properties.getBackoffBase().toNanos() * Math.pow(2, step - 1));
+            long until = now + backoff;
+            failed.blockedUntil.accumulateAndGet(until, (current, next) -> next - current > 0 ? next : current);
+        }
+    }
+
+    /**
+     * Forgets the failures of the username after a successful login.
+     */
+    public void recordSuccess(String username) {
+        failures.invalidate(usernameKey(username));
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (address == null || trustedProxies.isEmpty() || !IP_LITERAL.matcher(address).matches()) {
+            return false;
+        }
+        try {
+            return trustedProxies.stream().anyMatch(proxy -> proxy.matches(address));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Usernames are keyed case-insensitively and cut to a bounded length, so neither case
+     * variations nor very long names get around the limit or inflate the maps.
+     */
+    private static String usernameKey(String username) {
+        if (username == null) {
+            return "";
+        }
+        String key = username.length() > 128 ? username.substring(0, 128) : username;
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    private static AppTooManyRequestsException tooManyRequests(long waitNanos) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        return new AppTooManyRequestsException("Login", "Too many login attempts, retry later", seconds);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("login.rate_limit.rejected")
+                .description("Login attempts rejected before authentication")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Token bucket as GCRA: one attempt is admitted every {@code interval}, and up to
+     * {@code limit} at once, as long as the theoretical arrival time stays within the tolerance.
+     */
+    private static final class Gcra {
+
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong theoreticalArrival;
+
+        private Gcra(int limit, Duration period, long now) {
+            this.interval = period.toNanos() / Math.max(1, limit);
+            this.tolerance = interval * (Math.max(1, limit) - 1);
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        /**
+         * @return 0 when the attempt is admitted, otherwise the nanoseconds until one would be.
+         */
+        private long tryAcquire(long now) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long arrival = current - now > 0 ? current : now;
+                long wait = arrival - now - tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(current, arrival + interval)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private static final class Failures {
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong blockedUntil;
+
+        private Failures(long now) {
+            this.blockedUntil = new AtomicLong(now);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Password hashing settings, bound from the app.password-hashing.* properties.
+ * {@link #algorithm} (bcrypt or pbkdf2) and {@link #bcryptCost} are the target for new hashes.
+ * A {@link #threads} value of 0 means one thread per available processor.
+ * Bulk imports hash on at most {@link #importThreads} of those threads at a time, 0 meaning half of them,
+ * so that logins always find a free hashing thread while an import runs.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.password-hashing")
+@Getter
+@Setter
+public class PasswordHashingProperties {
+    private String algorithm = "bcrypt";
+    private int bcryptCost = 12;
+    private int threads = 0;
+    private int importThreads = 0;
+    private int queueCapacity = 100;
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public int resolveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int resolveImportThreads() {
+        int hashingThreads = resolveThreads();
+        int share = importThreads > 0 ? importThreads : hashingThreads / 2;
+        return Math.max(1, Math.min(share, hashingThreads - 1));
+    }
+}
@@ -0,0 +1,130 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.AuthenticationResponseDTO;
+import gr.aueb.cf.finalproject.model.RefreshToken;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.RefreshTokenRepository;
+import gr.aueb.cf.finalproject.security.JwtProperties;
+import gr.aueb.cf.finalproject.security.JwtService;
+import gr.aueb.cf.finalproject.security.TokenDigests;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * Issues and rotates refresh tokens. A refresh token is 256 random bits; only its SHA-256 digest
+ * is stored, which is enough for a secret of that entropy and costs microseconds instead of a BCrypt round.
+ * Refreshing reads the token and its user with one indexed query, revokes it and issues its successor,
+ * so an access token is renewed without the password.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtService jwtService;
+    private final JwtProperties jwtProperties;
+    private final Mapper mapper;
+
+    /**
+     * Starts a new token family for the user, e.g. on login, and drops the user's expired tokens.
+     * @return the refresh token to hand to the client.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public String issue(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.deleteExpiredByUserId(user.getId(), now);
+        return save(user, HexFormat.of().formatHex(randomBytes(16)), now);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token of the same family.
+     * A token that was already rotated is treated as stolen: its whole family is revoked.
+     * @throws AppObjectNotAuthorizedException if the token is unknown, expired, revoked or its user inactive.
+     */
+    @Timed(value = "auth.refresh", histogram = true)
+    @Transactional(rollbackFor = Exception.class, noRollbackFor = AppObjectNotAuthorizedException.class)
+    public AuthenticationResponseDTO refresh(String rawToken) throws AppObjectNotAuthorizedException {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex(rawToken))
+                .orElseThrow(() -> new AppObjectNotAuthorizedException("RefreshToken", "Invalid refresh token"));
+        User user = refreshToken.getUser();
+        if (refreshToken.isExpired(now) || !user.isEnabled()) {
+            throw new AppObjectNotAuthorizedException("RefreshToken", "Invalid refresh token");
+        }
+        // revoked only if still active, so of two refreshes racing with the same token one counts as reuse
+        if (refreshToken.isRevoked() || refreshTokenRepository.revokeIfActive(refreshToken.getId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(refreshToken.getFamilyId(), now);
+            LOGGER.warn("Reuse of a rotated refresh token of user {}, revoked {} tokens of its family",
+                    user.getUsername(), revoked);
+            throw new AppObjectNotAuthorizedException("RefreshToken", "Invalid refresh token");
+        }
+        String successor = save(user, refreshToken.getFamilyId(), now);
+        String accessToken = jwtService.generateToken(mapper.mapToUserTokenClaimsDTO(user));
+        return new AuthenticationResponseDTO(accessToken, successor);
+    }
+
+    /**
+     * Revokes every refresh token of the user, e.g. when the user is deactivated.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void revokeAll(User user) {
+        refreshTokenRepository.revokeAllByUserId(user.getId(), LocalDateTime.now());
+    }
+
+    /**
+     * Deletes every refresh token of the user, which has to happen before the user is deleted.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteAll(User user) {
+        refreshTokenRepository.deleteAllByUserId(user.getId());
+    }
+
+    /**
+     * Revokes every refresh token of the given users in one statement, for bulk deactivation.
+     * @return the number of tokens revoked.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int revokeAll(Collection<Long> userIds) {
+        return refreshTokenRepository.revokeAllByUserIds(userIds, LocalDateTime.now());
+    }
+
+    /**
+     * Deletes every refresh token of the given users in one statement, before a bulk delete of the users.
+     * @return the number of tokens deleted.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int deleteAll(Collection<Long> userIds) {
+        return refreshTokenRepository.deleteAllByUserIds(userIds);
+    }
+
+    private String save(User user, String familyId, LocalDateTime now) {
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes(32));
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(TokenDigests.sha256Hex(rawToken));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setUser(user);
+        refreshToken.setExpiresAt(now.plus(jwtProperties.getRefreshExpiration()));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+}
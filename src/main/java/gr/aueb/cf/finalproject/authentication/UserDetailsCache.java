@@ -0,0 +1,83 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of {@link AuthenticatedUser} principals by username.
+ * Size and hit ratio are published as the "userDetails" cache metrics, load latency
+ * as the "user.details.load" timer.
+ * <p>
+ * Misses are loaded outside of the cache's compute: a JDBC round trip under the map's bin
+ * lock would pin the carrier thread when requests run on virtual threads. A loaded principal
+ * is only cached when no eviction happened while it was being read, and that check runs atomically
+ * with the put, so a concurrent write can never be overwritten by the stale copy.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, AuthenticatedUser> cache;
+    private final AtomicLong evictions = new AtomicLong();
+    private final Timer loadTimer;
+
+    public UserDetailsCache(AuthenticationProperties authenticationProperties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(authenticationProperties.getUserCacheMaximumSize())
+                .expireAfterWrite(authenticationProperties.getUserCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+        this.loadTimer = Timer.builder("user.details.load")
+                .description("Time spent loading a principal on a cache miss")
+                .register(meterRegistry);
+    }
+
+    public AuthenticatedUser get(String username, Function<String, AuthenticatedUser> loader) {
+        AuthenticatedUser cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = evictions.get();
+        AuthenticatedUser loaded = loadTimer.record(() -> loader.apply(username));
+        if (loaded != null) {
+            // checked and put under the entry's lock: an eviction either bumps the generation first
+            // and the put is skipped, or its invalidate waits for the put and removes it
+            cache.asMap().compute(username, (key, current) -> evictions.get() == generation ? loaded : current);
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts the user once the current transaction commits, or right away when there is none.
+     * Evicting after the commit makes sure a principal loaded while the write was still
+     * in flight does not survive it.
+     * @param username the user that was written.
+     */
+    public void evictAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(username);
+            }
+        });
+    }
+
+    private void evict(String username) {
+        // bumped before the invalidation so that a load racing with it skips its put
+        evictions.incrementAndGet();
+        cache.invalidate(username);
+    }
+}
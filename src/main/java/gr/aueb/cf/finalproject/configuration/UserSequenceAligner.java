@@ -0,0 +1,44 @@
+package gr.aueb.cf.finalproject.configuration;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * User ids used to come from an IDENTITY column and now come from the pooled users_seq generator,
+ * which MySQL emulates with a table. The pooled optimizer takes the value it reads as the top of a block
+ * of {@link #ALLOCATION_SIZE} ids and hands out the block below it, so the table is moved to at least
+ * the highest existing id plus the allocation size, and the lowest id of the first block lands above it.
+ * Runs once every singleton exists and before the web server starts, so no request inserts a user first.
+ * Databases with native sequences (H2 in tests and benchmarks) start empty and are left alone.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserSequenceAligner implements SmartInitializingSingleton {
+
+    // the allocationSize of the users_seq generator on User
+    static final int ALLOCATION_SIZE = 50;
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSequenceAligner.class);
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        alignUserSequence();
+    }
+
+    public void alignUserSequence() {
+        try {
+            int updated = jdbcTemplate.update("UPDATE users_seq SET next_val = (SELECT COALESCE(MAX(id), 0) + ? FROM users) " +
+                    "WHERE next_val < (SELECT COALESCE(MAX(id), 0) + ? FROM users)", ALLOCATION_SIZE, ALLOCATION_SIZE);
+            if (updated > 0) {
+                LOGGER.info("users_seq moved a whole allocation past the highest existing user id");
+            }
+        } catch (DataAccessException e) {
+            LOGGER.debug("users_seq is not a table, nothing to align");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package gr.aueb.cf.finalproject.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Active only when requests run on virtual threads (the "virtual" profile).
+ * Tomcat then no longer bounds the number of in-flight requests, so the datasource is
+ * wrapped in a {@link ConcurrencyLimitedDataSource} sized to the Hikari pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadDataSourceConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadDataSourceConfig.class);
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                int permits = hikari.getMaximumPoolSize();
+                LOGGER.info("Database access limited to {} concurrent connections", permits);
+                return new ConcurrencyLimitedDataSource((DataSource) bean, permits,
+                        Duration.ofMillis(hikari.getConnectionTimeout()));
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package gr.aueb.cf.finalproject.core.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries {@link RetryOnOptimisticLock} methods that lost an optimistic lock, with full jitter
+ * so that the writers that collided do not collide again on the next attempt.
+ * Ordered before the transaction interceptor, so that every attempt runs in its own transaction
+ * and sees the committed row. A call that joins a caller's transaction is not retried, since
+ * that transaction is already marked for rollback.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class OptimisticLockRetryAspect {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OptimisticLockRetryAspect.class);
+
+    private final OptimisticLockRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Around("@annotation(gr.aueb.cf.finalproject.core.concurrency.RetryOnOptimisticLock)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String method = joinPoint.getSignature().toShortString();
+        int maxAttempts = Math.max(1, properties.getMaxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    Counter.builder("optimistic_lock.exhausted").tag("method", method)
+                            .register(meterRegistry).increment();
+                    LOGGER.warn("Optimistic lock still failing after {} attempts of {}", attempt, method);
+                    throw e;
+                }
+                Counter.builder("optimistic_lock.retries").tag("method", method)
+                        .register(meterRegistry).increment();
+                Thread.sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(properties.getBackoffMax().toMillis(),
+                properties.getBackoffBase().toMillis() << Math.min(attempt - 1, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,23 @@
+package gr.aueb.cf.finalproject.core.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Retries of methods marked {@link RetryOnOptimisticLock}, bound from the app.optimistic-lock-retry.* properties.
+ * A call is made at most {@link #maxAttempts} times. Before each retry it sleeps a random time
+ * between zero and {@link #backoffBase} doubled per attempt, capped at {@link #backoffMax}.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.optimistic-lock-retry")
+@Getter
+@Setter
+public class OptimisticLockRetryProperties {
+    private int maxAttempts = 3;
+    private Duration backoffBase = Duration.ofMillis(20);
+    private Duration backoffMax = Duration.ofMillis(200);
+}
@@ -0,0 +1,20 @@
+package gr.aueb.cf.finalproject.core.concurrency;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method again, in a new transaction, when it loses an optimistic lock
+ * to a concurrent writer. Only for idempotent operations that set a value independent of the row
+ * they read, such as a flag, so that a retry gives the same result whatever the winner changed.
+ * Never for a method that writes back a client's copy of the row, a retry would silently overwrite the winner.
+ * See {@link OptimisticLockRetryAspect}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnOptimisticLock {
+}
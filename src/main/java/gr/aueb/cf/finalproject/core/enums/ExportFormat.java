@@ -0,0 +1,5 @@
+package gr.aueb.cf.finalproject.core.enums;
+
+public enum ExportFormat {
+    NDJSON, CSV
+}
@@ -0,0 +1,20 @@
+package gr.aueb.cf.finalproject.core.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a bounded resource is saturated and the caller should retry later.
+ * Unchecked, since it is raised from behind framework interfaces such as the PasswordEncoder.
+ */
+@Getter
+public class AppServiceUnavailableException extends RuntimeException {
+    private static final String DEFAULT_CODE = "Unavailable";
+    private final String code;
+    private final long retryAfterSeconds;
+
+    public AppServiceUnavailableException(String code, String message, long retryAfterSeconds) {
+        super(message);
+        this.code = code + DEFAULT_CODE;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
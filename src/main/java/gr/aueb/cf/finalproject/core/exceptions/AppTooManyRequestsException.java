@@ -0,0 +1,21 @@
+package gr.aueb.cf.finalproject.core.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a caller is over its rate limit and should retry later.
+ * Unchecked like {@link AppServiceUnavailableException}, the two are answered the same way
+ * apart from the status code.
+ */
+@Getter
+public class AppTooManyRequestsException extends RuntimeException {
+    private static final String DEFAULT_CODE = "TooManyRequests";
+    private final String code;
+    private final long retryAfterSeconds;
+
+    public AppTooManyRequestsException(String code, String message, long retryAfterSeconds) {
+        super(message);
+        this.code = code + DEFAULT_CODE;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
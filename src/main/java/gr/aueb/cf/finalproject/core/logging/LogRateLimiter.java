@@ -0,0 +1,33 @@
+package gr.aueb.cf.finalproject.core.logging;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most one log statement through per interval and counts the ones it held back,
+ * so a storm of identical warnings costs a CAS per event instead of a log line.
+ */
+public class LogRateLimiter {
+
+    private final long intervalNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogRateLimiter(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * @return the number of events suppressed since the last permitted one, or -1 when this one
+     * should be suppressed as well.
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        long allowedAt = nextAllowed.get();
+        if (now - allowedAt >= 0 && nextAllowed.compareAndSet(allowedAt, now + intervalNanos)) {
+            return suppressed.getAndSet(0);
+        }
+        suppressed.incrementAndGet();
+        return -1;
+    }
+}
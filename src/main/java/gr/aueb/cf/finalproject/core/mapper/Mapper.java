@@ -1,19 +1,26 @@
 package gr.aueb.cf.finalproject.core.mapper;
 
 import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.dto.CountryReadOnlyDTO;
+import gr.aueb.cf.finalproject.dto.UserEventDTO;
 import gr.aueb.cf.finalproject.dto.UserInsertDTO;
 import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.dto.UserTokenClaimsDTO;
 import gr.aueb.cf.finalproject.dto.UserUpdateDTO;
+import gr.aueb.cf.finalproject.model.OutboxEvent;
 import gr.aueb.cf.finalproject.model.User;
 import gr.aueb.cf.finalproject.model.static_data.Country;
 import gr.aueb.cf.finalproject.repository.CountryRepository;
 import gr.aueb.cf.finalproject.repository.UserRepository;
+import gr.aueb.cf.finalproject.service.CountryRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 
 /**
  * Doing all the necessary mapping, assigning DTOs to user entities and the reverse.
+ * Countries are resolved against the {@link CountryRegistry} and attached as references,
+ * so mapping never queries the countries table.
  */
 @Component
 @RequiredArgsConstructor
@@ -21,6 +28,7 @@ public class Mapper {
 
     private final CountryRepository countryRepository;
     private final UserRepository userRepository;
+    private final CountryRegistry countryRegistry;
 
     public User mapToUserEntity(UserInsertDTO userInsertDTO) {
         User user = new User();
@@ -31,25 +39,50 @@ public class Mapper {
         user.setPassword(userInsertDTO.getPassword());
         user.setRole(Role.USER);
         user.setBirthdate(userInsertDTO.getBirthdate());
-        // Fetch the Country by ID from the database (or handle null cases)
-        Country country = countryRepository.findByName(userInsertDTO.getCountryName())
-                .orElseThrow(() -> new IllegalArgumentException("Invalid country ID"));
-        user.setCountry(country);
+        user.setCountry(mapToCountryReference(userInsertDTO.getCountryName()));
         return user;
     }
     public UserReadOnlyDTO mapToUserReadOnlyDTO(User user) {
-        return new UserReadOnlyDTO(user.getId(),user.getUsername(),user.getFirstname(),user.getLastname(),user.getEmail(),user.getCountry().getName(), user.getIsActive());
+        return new UserReadOnlyDTO(user.getId(),user.getUsername(),user.getFirstname(),user.getLastname(),user.getEmail(),mapToCountryName(user.getCountry()), user.getIsActive(),
+                user.getVersion() == null ? 0 : user.getVersion());
+    }
+
+    public UserEventDTO mapToUserEventDTO(OutboxEvent event) {
+        return new UserEventDTO(event.getId(), event.getEventType(), event.getUserId(), event.getUsername(),
+                event.getUserVersion(), event.getCreatedAt(), event.getPayload());
+    }
+
+    public UserTokenClaimsDTO mapToUserTokenClaimsDTO(User user) {
+        return new UserTokenClaimsDTO(user.getUsername(), user.getRole().name(), user.getFirstname(), user.getLastname(),
+                user.getEmail(), user.getBirthdate().toString(), mapToCountryName(user.getCountry()),
+                user.getVersion() == null ? 0 : user.getVersion());
     }
 
     public User mapToUpdateUserEntity(UserUpdateDTO userUpdateDTO, User user)  {
         user.setFirstname(userUpdateDTO.getFirstname());
         user.setLastname(userUpdateDTO.getLastname());
         user.setEmail(userUpdateDTO.getEmail());
-        Country country = countryRepository.findByName(userUpdateDTO.getCountryName())
-                .orElseThrow(() -> new IllegalArgumentException("Invalid country ID"));
-        user.setCountry(country);
+        user.setCountry(mapToCountryReference(userUpdateDTO.getCountryName()));
         user.setBirthdate(userUpdateDTO.getBirthdate());
 
         return user;
     }
+
+    /**
+     * Resolves the country by name and returns an uninitialized reference to it.
+     */
+    public Country mapToCountryReference(String countryName) {
+        CountryReadOnlyDTO country = countryRegistry.findByName(countryName)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid country name"));
+        return countryRepository.getReferenceById(country.getId());
+    }
+
+    /**
+     * Reads the country name from the registry, so that a country reference is never initialized just for its name.
+     */
+    public String mapToCountryName(Country country) {
+        return countryRegistry.findById(country.getId())
+                .map(CountryReadOnlyDTO::getName)
+                .orElseGet(country::getName);
+    }
 }
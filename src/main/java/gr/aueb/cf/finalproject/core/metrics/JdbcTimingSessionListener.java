@@ -0,0 +1,32 @@
+package gr.aueb.cf.finalproject.core.metrics;
+
+import org.hibernate.engine.spi.BaseSessionEventListener;
+
+/**
+ * Adds the time spent executing JDBC statements to the current request.
+ * Hibernate creates one per session, as configured by hibernate.session.events.auto.
+ */
+public class JdbcTimingSessionListener extends BaseSessionEventListener {
+
+    private long executionStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestStatements.recordExecution(System.nanoTime() - executionStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestStatements.recordExecution(System.nanoTime() - executionStart);
+    }
+}
@@ -0,0 +1,92 @@
+package gr.aueb.cf.finalproject.core.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how many SQL statements each request issued and how long they took, tagged with the
+ * request's method and URI template as http.server.requests.db.statements and
+ * http.server.requests.db.time. When one statement is prepared at least
+ * app.metrics.n-plus-one-threshold times in a single request, the request is counted
+ * as a suspected N+1 and the statement is logged once per URI template.
+ * Runs ahead of the security filters, so the user lookups of authentication are included.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetricsFilter.class);
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+    private final Set<String> reportedNPlusOne = ConcurrentHashMap.newKeySet();
+
+    public QueryMetricsFilter(MeterRegistry meterRegistry,
+                              @Value("${app.metrics.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStatements statements = RequestStatements.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestStatements.end();
+            record(request, statements);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestStatements statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+
+        DistributionSummary.builder("http.server.requests.db.statements")
+                .description("SQL statements per request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements.getStatements());
+        Timer.builder("http.server.requests.db.time")
+                .description("Time spent executing SQL per request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements.getExecutionNanos(), TimeUnit.NANOSECONDS);
+
+        Map.Entry<String, Integer> mostRepeated = statements.mostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= nPlusOneThreshold) {
+            Counter.builder("db.n_plus_one.suspected")
+                    .description("Requests that prepared the same statement over the N+1 threshold")
+                    .tags("method", method, "uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            if (reportedNPlusOne.add(method + " " + uri)) {
+                LOGGER.warn("Possible N+1 on {} {}: statement prepared {} times: {}",
+                        method, uri, mostRepeated.getValue(), mostRepeated.getKey());
+            }
+        }
+    }
+}
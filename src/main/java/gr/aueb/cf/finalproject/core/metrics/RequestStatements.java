@@ -0,0 +1,64 @@
+package gr.aueb.cf.finalproject.core.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The SQL statements issued while serving the current request, bound to the request thread
+ * by {@link QueryMetricsFilter}. Hibernate reports into it through {@link StatementCountingInspector}
+ * (what is prepared) and {@link JdbcTimingSessionListener} (how long executions take).
+ * Outside of a request (startup, scheduled work, streaming on async threads) nothing is recorded.
+ */
+public final class RequestStatements {
+
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Integer> countsBySql = new HashMap<>();
+    private int statements;
+    private long executionNanos;
+
+    private RequestStatements() {
+    }
+
+    static RequestStatements begin() {
+        RequestStatements requestStatements = new RequestStatements();
+        CURRENT.set(requestStatements);
+        return requestStatements;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static void recordStatement(String sql) {
+        RequestStatements current = CURRENT.get();
+        if (current != null) {
+            current.statements++;
+            current.countsBySql.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    static void recordExecution(long nanos) {
+        RequestStatements current = CURRENT.get();
+        if (current != null) {
+            current.executionNanos += nanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * @return the statement prepared most often in this request, or null when there was none.
+     */
+    public Map.Entry<String, Integer> mostRepeated() {
+        return countsBySql.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+    }
+}
@@ -0,0 +1,16 @@
+package gr.aueb.cf.finalproject.core.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every statement Hibernate prepares against the current request.
+ * Registered through hibernate.session_factory.statement_inspector, it leaves the SQL untouched.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatements.recordStatement(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,63 @@
+package gr.aueb.cf.finalproject.core.pagination;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectInvalidArgumentException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns a keyset scroll position into an opaque, URL safe cursor and back.
+ * Only the whitelisted sort keys are accepted when decoding, so a client cannot
+ * smuggle arbitrary properties into the generated query.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetCursorCodec {
+
+    private static final String FORWARD = "f";
+    private static final String BACKWARD = "b";
+    private final ObjectMapper objectMapper;
+
+    public String encode(Map<String, ?> keys, boolean forward) {
+        try {
+            String json = objectMapper.writeValueAsString(Map.of("d", forward ? FORWARD : BACKWARD, "k", keys));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    public KeysetScrollPosition decode(String cursor) throws AppObjectInvalidArgumentException {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            Map<?, ?> decoded = objectMapper.readValue(json, Map.class);
+            Map<?, ?> rawKeys = (Map<?, ?>) decoded.get("k");
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : rawKeys.entrySet()) {
+                keys.put((String) entry.getKey(), toKeyValue((String) entry.getKey(), entry.getValue()));
+            }
+            return BACKWARD.equals(decoded.get("d"))
+                    ? ScrollPosition.backward(keys)
+                    : ScrollPosition.forward(keys);
+        } catch (RuntimeException | IOException e) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Invalid cursor.");
+        }
+    }
+
+    private static Object toKeyValue(String key, Object value) {
+        return switch (key) {
+            case "id" -> ((Number) value).longValue();
+            case "username" -> (String) value;
+            default -> throw new IllegalArgumentException("Unsupported cursor key " + key);
+        };
+    }
+}
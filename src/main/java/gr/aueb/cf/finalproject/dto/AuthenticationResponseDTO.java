@@ -14,4 +14,5 @@ import java.time.LocalDate;
 @NoArgsConstructor
 public class AuthenticationResponseDTO {
     private String token;
+    private String refreshToken;
 }
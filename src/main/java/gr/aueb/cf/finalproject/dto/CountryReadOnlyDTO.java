@@ -0,0 +1,17 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class CountryReadOnlyDTO {
+    private final long id;
+    private final String name;
+    private final String iso;
+
+    @Override
+    public String toString() {
+        return name + " (" + iso + ")";
+    }
+}
@@ -0,0 +1,14 @@
+package gr.aueb.cf.finalproject.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenRequestDTO {
+    @NotNull
+    private String refreshToken;
+}
@@ -0,0 +1,20 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Selects the users of a bulk operation, either by id or by the filters of a user search, not both.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserBulkRequestDTO {
+    private List<Long> ids;
+    private UserSearchCriteria criteria;
+}
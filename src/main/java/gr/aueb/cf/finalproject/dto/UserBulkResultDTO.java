@@ -0,0 +1,21 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of a bulk operation. Selected users that were not affected did not exist any more,
+ * were already in the requested state, or were the admin running the operation.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserBulkResultDTO {
+    private long selected;
+    private long affected;
+    private long refreshTokens;
+    private int chunks;
+}
@@ -0,0 +1,30 @@
+package gr.aueb.cf.finalproject.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A published user lifecycle event. The id grows with every event and is the SSE event id,
+ * consumers receive events at least once and may drop ids they have seen.
+ * The user is the {@link UserReadOnlyDTO} JSON as it was after the change.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserEventDTO {
+    private long id;
+    private UserEventType type;
+    private long userId;
+    private String username;
+    private long userVersion;
+    private LocalDateTime occurredAt;
+    @JsonRawValue
+    private String user;
+}
@@ -0,0 +1,19 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserImportResultDTO {
+    private long total;
+    private long imported;
+    private long failed;
+    private List<UserImportRowResultDTO> rows;
+}
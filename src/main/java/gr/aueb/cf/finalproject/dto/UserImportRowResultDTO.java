@@ -0,0 +1,30 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of one row of a bulk import. Rows are numbered from 1.
+ * On success id is set and code is null, on failure code and message say why.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserImportRowResultDTO {
+    private long row;
+    private String username;
+    private Long id;
+    private String code;
+    private String message;
+
+    public static UserImportRowResultDTO imported(long row, String username, Long id) {
+        return new UserImportRowResultDTO(row, username, id, null, null);
+    }
+
+    public static UserImportRowResultDTO failed(long row, String username, String code, String message) {
+        return new UserImportRowResultDTO(row, username, null, code, message);
+    }
+}
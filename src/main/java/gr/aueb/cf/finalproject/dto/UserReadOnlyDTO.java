@@ -17,6 +17,7 @@ public class UserReadOnlyDTO {
     private String email;
     private String countryName;
     private boolean isActive;
+    private long version;
 
     @Override
     public String toString() {
@@ -28,6 +29,7 @@ public class UserReadOnlyDTO {
                 ", email='" + email + '\'' +
                 ", countryName='" + countryName + '\'' +
                 ", isActive=" + isActive +
+                ", version=" + version +
                 '}';
     }
 
@@ -0,0 +1,30 @@
+package gr.aueb.cf.finalproject.dto;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters of a user search. Unset filters are ignored.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserSearchCriteria {
+    private String countryName;
+    private Boolean active;
+    private String lastnamePrefix;
+    private String firstnamePrefix;
+    private String emailPrefix;
+    private Role role;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+}
@@ -0,0 +1,21 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row count, highest id, latest modification and sum of the row versions of the users table.
+ * Every update and bulk update increments the version of its rows, so the sum grows with each of them
+ * even when updated_at does not move (same timestamp granularity, clock skew between nodes).
+ * Inserts and deletes change the count or the highest id, so together they version every listing of users.
+ */
+@AllArgsConstructor
+@Getter
+public class UserTableVersionDTO {
+    private final Long count;
+    private final Long maxId;
+    private final LocalDateTime lastUpdatedAt;
+    private final Long versionSum;
+}
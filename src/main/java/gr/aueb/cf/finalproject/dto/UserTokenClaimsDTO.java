@@ -0,0 +1,24 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The user information that goes into a JWT. The version is not a claim, it becomes the ETag of the user.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserTokenClaimsDTO {
+    private String username;
+    private String role;
+    private String firstname;
+    private String lastname;
+    private String email;
+    private String dateOfBirth;
+    private String countryName;
+    private long version;
+}
@@ -0,0 +1,23 @@
+package gr.aueb.cf.finalproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A window of users read with keyset pagination.
+ * The cursors are opaque, null when there is nothing further in that direction.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UserWindowDTO {
+    private List<UserReadOnlyDTO> content;
+    private int size;
+    private String nextCursor;
+    private String prevCursor;
+}
@@ -0,0 +1,49 @@
+package gr.aueb.cf.finalproject.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.finalproject.dto.UserEventDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends every event as one line of JSON to a file, for local runs without a broker.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "sink", havingValue = "file")
+public class FileUserEventSink implements UserEventSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileUserEventSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        this.path = properties.getFilePath();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<UserEventDTO> events) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (UserEventDTO event : events) {
+                    writer.write(objectMapper.writeValueAsString(event));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append user events to " + path, e);
+        }
+    }
+}
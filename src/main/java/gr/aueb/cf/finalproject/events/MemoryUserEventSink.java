@@ -0,0 +1,38 @@
+package gr.aueb.cf.finalproject.events;
+
+import gr.aueb.cf.finalproject.dto.UserEventDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent events in memory, for local runs without a broker.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "sink", havingValue = "memory", matchIfMissing = true)
+public class MemoryUserEventSink implements UserEventSink {
+
+    private final int capacity;
+    private final Deque<UserEventDTO> events = new ArrayDeque<>();
+
+    public MemoryUserEventSink(OutboxProperties properties) {
+        this.capacity = Math.max(1, properties.getMemoryCapacity());
+    }
+
+    @Override
+    public synchronized void publish(List<UserEventDTO> batch) {
+        for (UserEventDTO event : batch) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    public synchronized List<UserEventDTO> recent() {
+        return List.copyOf(events);
+    }
+}
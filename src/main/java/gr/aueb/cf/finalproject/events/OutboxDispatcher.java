@@ -0,0 +1,112 @@
+package gr.aueb.cf.finalproject.events;
+
+import gr.aueb.cf.finalproject.core.logging.LogRateLimiter;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.UserEventDTO;
+import gr.aueb.cf.finalproject.model.OutboxEvent;
+import gr.aueb.cf.finalproject.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the user events of the outbox to the {@link UserEventSink}. The {@link UserEventStream} of
+ * every node picks the published events up from the outbox table, whichever node published them.
+ * Each batch is locked with SKIP LOCKED, published and marked published in one transaction, so that
+ * several nodes can dispatch side by side and a failed publish leaves the batch pending for the next poll.
+ * Events are published at least once, in id order within a batch.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "dispatcher-enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Mapper mapper;
+    private final UserEventSink userEventSink;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final LogRateLimiter failureLogLimiter = new LogRateLimiter(Duration.ofMinutes(1));
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter published;
+    private final Counter failures;
+    private final Timer lag;
+    private final Timer publishTime;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, Mapper mapper, UserEventSink userEventSink,
+                            OutboxProperties properties,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.mapper = mapper;
+        this.userEventSink = userEventSink;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.published = Counter.builder("outbox.published").register(meterRegistry);
+        this.failures = Counter.builder("outbox.publish.failures").register(meterRegistry);
+        // time from the commit of the change to the publication of its event
+        this.lag = Timer.builder("outbox.lag").publishPercentileHistogram().register(meterRegistry);
+        this.publishTime = Timer.builder("outbox.publish").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:500ms}")
+    public void dispatch() {
+        try {
+            for (int i = 0; i < Math.max(1, properties.getMaxBatchesPerPoll()); i++) {
+                Integer publishedEvents = transactionTemplate.execute(status -> publishBatch());
+                if (publishedEvents == null || publishedEvents < properties.getBatchSize()) {
+                    break;
+                }
+            }
+            pending.set(outboxEventRepository.countByPublishedAtIsNull());
+        } catch (RuntimeException e) {
+            failures.increment();
+            long suppressed = failureLogLimiter.tryAcquire();
+            if (suppressed >= 0) {
+                LOGGER.warn("Publishing user events failed, retrying on the next poll ({} similar failures suppressed): {}",
+                        suppressed, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval:1h}")
+    public void deletePublished() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRetention());
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(before));
+        if (deleted != null && deleted > 0) {
+            LOGGER.info("Deleted {} user events published before {}", deleted, before);
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockUnpublished(Limit.of(Math.max(1, properties.getBatchSize())));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<UserEventDTO> events = batch.stream().map(mapper::mapToUserEventDTO).toList();
+        publishTime.record(() -> userEventSink.publish(events));
+
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.markPublished(batch.stream().map(OutboxEvent::getId).toList(), now);
+        for (OutboxEvent event : batch) {
+            lag.record(Duration.between(event.getCreatedAt(), now));
+        }
+        published.increment(batch.size());
+        return batch.size();
+    }
+}
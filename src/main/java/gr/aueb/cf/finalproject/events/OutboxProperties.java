@@ -0,0 +1,41 @@
+package gr.aueb.cf.finalproject.events;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * User event outbox, bound from the app.outbox.* properties.
+ * Every {@link #pollInterval} the dispatcher publishes up to {@link #maxBatchesPerPoll} batches of
+ * {@link #batchSize} events to the {@link #sink} ("memory" or "file"). Published events are kept for
+ * {@link #retention}, so that stream consumers can resume from the last event id they have seen.
+ * A resumed stream also replays the events published up to {@link #streamReplayLookBack} before that
+ * event, since a batch stamped earlier may commit later, or on a node whose clock is behind.
+ * Live streams are fed by reading the outbox table every {@link #streamPollInterval}, with the same look-back.
+ * Events are always recorded, {@link #dispatcherEnabled} only decides whether this node publishes them.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.outbox")
+@Getter
+@Setter
+public class OutboxProperties {
+    private boolean dispatcherEnabled = true;
+    private String sink = "memory";
+    private Duration pollInterval = Duration.ofMillis(500);
+    private int batchSize = 200;
+    private int maxBatchesPerPoll = 10;
+    private Duration retention = Duration.ofDays(7);
+    private Duration cleanupInterval = Duration.ofHours(1);
+    private int memoryCapacity = 1000;
+    private Path filePath = Path.of("user-events.jsonl");
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    private Duration streamHeartbeat = Duration.ofSeconds(15);
+    private Duration streamPollInterval = Duration.ofMillis(500);
+    private int streamBufferSize = 1000;
+    private int streamReplayLimit = 500;
+    private Duration streamReplayLookBack = Duration.ofSeconds(5);
+}
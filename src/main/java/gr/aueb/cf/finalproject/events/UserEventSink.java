@@ -0,0 +1,15 @@
+package gr.aueb.cf.finalproject.events;
+
+import gr.aueb.cf.finalproject.dto.UserEventDTO;
+
+import java.util.List;
+
+/**
+ * Where the {@link OutboxDispatcher} publishes user events, e.g. a message broker.
+ * Called inside the transaction that marks the batch published: an exception keeps the whole batch
+ * pending and it is published again, so a sink must tolerate receiving an event more than once.
+ */
+public interface UserEventSink {
+
+    void publish(List<UserEventDTO> events);
+}
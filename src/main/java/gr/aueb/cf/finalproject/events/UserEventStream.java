@@ -0,0 +1,239 @@
+package gr.aueb.cf.finalproject.events;
+
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.UserEventDTO;
+import gr.aueb.cf.finalproject.model.OutboxEvent;
+import gr.aueb.cf.finalproject.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams published user events to server-sent event subscribers.
+ * <p>
+ * Dispatchers on all nodes share the outbox with SKIP LOCKED, so no node publishes every batch itself.
+ * Every node therefore tails the published events of the outbox table by (published_at, id) while it has
+ * subscribers, every stream-poll-interval. Since a batch stamped earlier may commit later, each poll reads
+ * again the stream-replay-look-back window behind the newest event it has seen and skips the ids it has
+ * already handed out.
+ * <p>
+ * Every subscriber has a bounded queue drained by its own virtual thread, so a slow consumer never
+ * holds up the tail. A consumer that falls further behind than the queue is disconnected and
+ * catches up on reconnect from the outbox table, starting after its Last-Event-ID.
+ */
+@Component
+public class UserEventStream {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Mapper mapper;
+    private final OutboxProperties properties;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Counter overflows;
+    // state of the tail, only touched by tail()
+    private final Map<Long, LocalDateTime> tailed = new HashMap<>();
+    private LocalDateTime tailPublishedAt;
+
+    public UserEventStream(OutboxEventRepository outboxEventRepository, Mapper mapper,
+                           OutboxProperties properties, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.mapper = mapper;
+        this.properties = properties;
+        Gauge.builder("outbox.stream.subscribers", subscriptions, Set::size).register(meterRegistry);
+        this.overflows = Counter.builder("outbox.stream.overflows").register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the events published by any node from now on. A live stream may start with
+     * events published up to stream-replay-look-back before it was opened.
+     * @param lastEventId the id of the last event the consumer has seen, or null for live events only.
+     * Events published after it, in publication order, are sent first, at most stream-replay-limit of them;
+     * when there are more, the stream ends after the replay and the consumer resumes from the last replayed id.
+     * Ids do not follow publication order, so the events published within stream-replay-look-back before it
+     * are sent again ahead of them, and the consumer skips the ids it has already seen.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        Subscription subscription = new Subscription(emitter, Math.max(1, properties.getStreamBufferSize()));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        // subscribed before the replay is read, so that no event falls between the two
+        subscriptions.add(subscription);
+
+        Replay replay = new Replay(List.of(), false);
+        if (lastEventId != null) {
+            try {
+                replay = replay(lastEventId, Math.max(1, properties.getStreamReplayLimit()));
+            } catch (RuntimeException e) {
+                subscription.close();
+                throw e;
+            }
+        }
+        Replay initial = replay;
+        subscription.thread = Thread.ofVirtual().name("user-event-stream")
+                .start(() -> subscription.run(initial.events(), initial.truncated()));
+        return emitter;
+    }
+
+    /**
+     * The events after lastEventId, up to the limit, preceded by the events of the look-back window.
+     * Those do not count towards the limit, so that a consumer resuming after a truncated replay always makes progress.
+     * An event no longer in the outbox, past its retention, resumes from the events with a greater id.
+     */
+    private Replay replay(long lastEventId, int limit) {
+        Optional<LocalDateTime> publishedAt = outboxEventRepository.findPublishedAtById(lastEventId);
+        List<OutboxEvent> lookBack = List.of();
+        List<OutboxEvent> after;
+        if (publishedAt.isEmpty()) {
+            after = outboxEventRepository.findPublishedAfterId(lastEventId, Limit.of(limit + 1));
+        } else {
+            LocalDateTime from = publishedAt.get().minus(properties.getStreamReplayLookBack());
+            lookBack = outboxEventRepository.findPublishedBetween(from, publishedAt.get(), lastEventId, Limit.of(limit));
+            after = outboxEventRepository.findPublishedAfter(publishedAt.get(), lastEventId, Limit.of(limit + 1));
+        }
+        boolean truncated = after.size() > limit;
+        List<UserEventDTO> events = new ArrayList<>(lookBack.size() + Math.min(after.size(), limit));
+        lookBack.forEach(event -> events.add(mapper.mapToUserEventDTO(event)));
+        after.stream().limit(limit).forEach(event -> events.add(mapper.mapToUserEventDTO(event)));
+        return new Replay(events, truncated);
+    }
+
+    private record Replay(List<UserEventDTO> events, boolean truncated) {
+    }
+
+    /**
+     * Reads the events published since the last poll, by this or any other node, and hands them to every subscriber.
+     * Without subscribers nothing is read, and the next subscriber starts the tail over from the look-back window.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.stream-poll-interval:500ms}")
+    public synchronized void tail() {
+        if (subscriptions.isEmpty()) {
+            tailed.clear();
+            tailPublishedAt = null;
+            return;
+        }
+        LocalDateTime newest = tailPublishedAt == null ? LocalDateTime.now() : tailPublishedAt;
+        int pageSize = Math.max(1, properties.getStreamReplayLimit());
+        // ids start at 1, so (from, 0) is ahead of every event published at from
+        LocalDateTime afterPublishedAt = newest.minus(properties.getStreamReplayLookBack());
+        long afterId = 0;
+        List<OutboxEvent> page;
+        do {
+            page = outboxEventRepository.findPublishedAfter(afterPublishedAt, afterId, Limit.of(pageSize));
+            List<UserEventDTO> events = new ArrayList<>(page.size());
+            for (OutboxEvent event : page) {
+                if (tailed.putIfAbsent(event.getId(), event.getPublishedAt()) == null) {
+                    events.add(mapper.mapToUserEventDTO(event));
+                }
+                if (event.getPublishedAt().isAfter(newest)) {
+                    newest = event.getPublishedAt();
+                }
+            }
+            broadcast(events);
+            if (!page.isEmpty()) {
+                afterPublishedAt = page.get(page.size() - 1).getPublishedAt();
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == pageSize);
+        tailPublishedAt = newest;
+        // events before the window are never read again, so their ids need not be remembered
+        LocalDateTime windowStart = newest.minus(properties.getStreamReplayLookBack());
+        tailed.values().removeIf(publishedAt -> publishedAt.isBefore(windowStart));
+    }
+
+    /**
+     * Hands the events to every subscriber, without waiting for any of them.
+     */
+    private void broadcast(List<UserEventDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            for (UserEventDTO event : events) {
+                if (!subscription.queue.offer(event)) {
+                    overflows.increment();
+                    subscription.emitter.complete();
+                    subscription.close();
+                    break;
+                }
+            }
+        }
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final BlockingQueue<UserEventDTO> queue;
+        private volatile boolean open = true;
+        private volatile Thread thread;
+
+        private Subscription(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void run(List<UserEventDTO> replay, boolean endAfterReplay) {
+            try {
+                Set<Long> replayed = new HashSet<>();
+                for (UserEventDTO event : replay) {
+                    send(event);
+                    replayed.add(event.getId());
+                }
+                if (endAfterReplay) {
+                    emitter.complete();
+                    return;
+                }
+                long heartbeatMillis = properties.getStreamHeartbeat().toMillis();
+                while (open) {
+                    UserEventDTO event = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else if (!replayed.contains(event.getId())) {
+                        send(event);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the consumer went away, the emitter callbacks close the subscription
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void send(UserEventDTO event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getId()))
+                    .name(event.getType().name())
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+
+        private void close() {
+            open = false;
+            subscriptions.remove(this);
+            Thread current = thread;
+            if (current != null && current != Thread.currentThread()) {
+                current.interrupt();
+            }
+        }
+    }
+}
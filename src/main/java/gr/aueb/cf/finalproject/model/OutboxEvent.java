@@ -0,0 +1,56 @@
+package gr.aueb.cf.finalproject.model;
+
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user lifecycle event, written in the same transaction as the change it describes and
+ * published afterwards by the {@link gr.aueb.cf.finalproject.events.OutboxDispatcher}.
+ * The user is referenced by id only, so that the events of a deleted user remain.
+ * The payload is the JSON of the user as it was after the change.
+ */
+@Entity
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_published", columnList = "published_at, id")
+})
+public class OutboxEvent extends AbstractEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private UserEventType eventType;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "user_version", nullable = false)
+    private Long userVersion;
+
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
@@ -7,7 +7,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,20 +25,35 @@ import java.util.List;
 @AllArgsConstructor
 @Getter
 @Setter
-@Table(name="users")
+@Table(name="users", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_username", columnNames = "username"),
+        @UniqueConstraint(name = "uk_users_email", columnNames = "email")
+}, indexes = {
+        @Index(name = "idx_users_country_active", columnList = "country_id, is_active"),
+        @Index(name = "idx_users_lastname_firstname", columnList = "lastname, firstname"),
+        @Index(name = "idx_users_firstname", columnList = "firstname"),
+        @Index(name = "idx_users_role_active", columnList = "role, is_active"),
+        @Index(name = "idx_users_created_at", columnList = "created_at"),
+        // covers max(updated_at) and sum(version) of the listing ETag probe
+        @Index(name = "idx_users_updated_at_version", columnList = "updated_at, version")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-username")
 public class User extends AbstractEntity implements UserDetails {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
-    @Column(unique=true)
+    @NaturalId
     private String username;
     private String password;
 
     private String firstname;
     private String lastname;
-    @Column(unique=true,nullable=false)
+    @Column(nullable=false)
     private String email;
     private LocalDate birthdate;
 
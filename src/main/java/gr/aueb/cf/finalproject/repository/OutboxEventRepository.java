@@ -0,0 +1,60 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest unpublished events. Rows locked by another dispatcher are skipped
+     * (lock timeout -2 is SKIP LOCKED), so that every node publishes a different batch.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where e.publishedAt is null order by e.id")
+    List<OutboxEvent> lockUnpublished(Limit limit);
+
+    @Query("select e.publishedAt from OutboxEvent e where e.id = :id and e.publishedAt is not null")
+    Optional<LocalDateTime> findPublishedAtById(@Param("id") long id);
+
+    /**
+     * Published events after the given one, in publication order. Events published in the same instant follow their ids.
+     */
+    @Query("select e from OutboxEvent e where e.publishedAt > :publishedAt or (e.publishedAt = :publishedAt and e.id > :id) " +
+            "order by e.publishedAt, e.id")
+    List<OutboxEvent> findPublishedAfter(@Param("publishedAt") LocalDateTime publishedAt, @Param("id") long id, Limit limit);
+
+    /**
+     * Published events from the given time up to the given event, in publication order.
+     */
+    @Query("select e from OutboxEvent e where e.publishedAt >= :from " +
+            "and (e.publishedAt < :publishedAt or (e.publishedAt = :publishedAt and e.id < :id)) " +
+            "order by e.publishedAt, e.id")
+    List<OutboxEvent> findPublishedBetween(@Param("from") LocalDateTime from, @Param("publishedAt") LocalDateTime publishedAt,
+                                           @Param("id") long id, Limit limit);
+
+    @Query("select e from OutboxEvent e where e.publishedAt is not null and e.id > :afterId order by e.publishedAt, e.id")
+    List<OutboxEvent> findPublishedAfterId(@Param("afterId") long afterId, Limit limit);
+
+    long countByPublishedAtIsNull();
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :now where e.id in :ids")
+    int markPublished(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
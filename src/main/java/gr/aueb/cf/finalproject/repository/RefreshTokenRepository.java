@@ -0,0 +1,52 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * The token with its user, in one read over the unique token_hash index.
+     */
+    @Query("select t from RefreshToken t join fetch t.user where t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHashWithUser(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Revokes the token unless it is revoked already, so that of two concurrent refreshes with the same token only one wins.
+     * @return 1 if this call revoked the token, 0 otherwise.
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.id = :id and t.revokedAt is null")
+    int revokeIfActive(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.familyId = :familyId and t.revokedAt is null")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.user.id = :userId and t.revokedAt is null")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.user.id in :userIds and t.revokedAt is null")
+    int revokeAllByUserIds(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id in :userIds")
+    int deleteAllByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId and t.expiresAt < :now")
+    int deleteExpiredByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,17 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.model.User;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Loads users by their natural id, the username. Unlike the derived findByUsername query this goes
+ * through the second-level cache: username to id from the natural-id region, the user from the
+ * entity region, and only a miss reaches the database.
+ */
+public interface UserNaturalIdRepository {
+
+    @Transactional(readOnly = true)
+    Optional<User> loadByUsername(String username);
+}
@@ -0,0 +1,33 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.User;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Lists users straight into {@link UserReadOnlyDTO} where a listing scrolls or filters, which the fluent
+ * queries of Spring Data only answer with entities. Like {@link UserRepository#findAllReadOnly}, only the
+ * listed columns and the country name are read and nothing is kept in the persistence context.
+ */
+public interface UserReadOnlyRepository {
+
+    /**
+     * A page of the users matching the specification, with its count query when the page does not tell the total.
+     */
+    @Transactional(readOnly = true)
+    Page<UserReadOnlyDTO> findReadOnly(Specification<User> specification, Pageable pageable);
+
+    /**
+     * Scrolls by keyset in the ascending order of the sort properties, which must end with a unique one.
+     * Scrolling backward returns the rows before the position, still in ascending order.
+     * @param limit the size of the window, one more row is read to tell whether there is a next window.
+     */
+    @Transactional(readOnly = true)
+    Window<UserReadOnlyDTO> scrollReadOnly(KeysetScrollPosition position, Sort sort, int limit);
+}
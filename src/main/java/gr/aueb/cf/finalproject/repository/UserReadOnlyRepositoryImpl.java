@@ -0,0 +1,132 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.model.static_data.Country;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserReadOnlyRepositoryImpl implements UserReadOnlyRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<UserReadOnlyDTO> findReadOnly(Specification<User> specification, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserReadOnlyDTO> query = criteriaBuilder.createQuery(UserReadOnlyDTO.class);
+        Root<User> root = query.from(User.class);
+        selectReadOnly(query, root, criteriaBuilder);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        TypedQuery<UserReadOnlyDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult(Math.toIntExact(pageable.getOffset()));
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(specification));
+    }
+
+    private long count(Specification<User> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.select(criteriaBuilder.count(root));
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Window<UserReadOnlyDTO> scrollReadOnly(KeysetScrollPosition position, Sort sort, int limit) {
+        List<String> properties = sort.stream().map(Sort.Order::getProperty).toList();
+        boolean forward = position.scrollsForward();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserReadOnlyDTO> query = criteriaBuilder.createQuery(UserReadOnlyDTO.class);
+        Root<User> root = query.from(User.class);
+        selectReadOnly(query, root, criteriaBuilder);
+        if (!position.isInitial()) {
+            query.where(beyond(root, criteriaBuilder, properties, position.getKeys(), forward));
+        }
+        query.orderBy(properties.stream()
+                .map(property -> forward ? criteriaBuilder.asc(root.get(property)) : criteriaBuilder.desc(root.get(property)))
+                .toList());
+        List<UserReadOnlyDTO> rows = entityManager.createQuery(query)
+                .setMaxResults(limit + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > limit;
+        List<UserReadOnlyDTO> items = new ArrayList<>(rows.subList(0, Math.min(rows.size(), limit)));
+        if (!forward) {
+            Collections.reverse(items);
+        }
+        return Window.from(items, index -> ScrollPosition.forward(keysOf(items.get(index), properties)), hasNext);
+    }
+
+    private static void selectReadOnly(CriteriaQuery<UserReadOnlyDTO> query, Root<User> root, CriteriaBuilder criteriaBuilder) {
+        Join<User, Country> country = root.join("country");
+        query.select(criteriaBuilder.construct(UserReadOnlyDTO.class,
+                root.get("id"), root.get("username"), root.get("firstname"), root.get("lastname"),
+                root.get("email"), country.get("name"), criteriaBuilder.coalesce(root.<Boolean>get("isActive"), true),
+                root.get("version")));
+    }
+
+    /**
+     * (k1, k2) > (v1, v2) spelled out as k1 > v1 or (k1 = v1 and k2 > v2), so that the index on the keys is used.
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate beyond(Root<User> root, CriteriaBuilder criteriaBuilder, List<String> properties,
+                                    Map<String, Object> keys, boolean forward) {
+        Predicate predicate = null;
+        for (int i = properties.size() - 1; i >= 0; i--) {
+            String property = properties.get(i);
+            if (keys.get(property) == null) {
+                throw new IllegalArgumentException("The scroll position has no " + property + " key");
+            }
+            Path<Comparable<Object>> path = root.get(property);
+            Comparable<Object> key = (Comparable<Object>) keys.get(property);
+            Predicate beyond = forward ? criteriaBuilder.greaterThan(path, key) : criteriaBuilder.lessThan(path, key);
+            predicate = predicate == null ? beyond : criteriaBuilder.or(beyond, criteriaBuilder.and(criteriaBuilder.equal(path, key), predicate));
+        }
+        return predicate;
+    }
+
+    private static Map<String, Object> keysOf(UserReadOnlyDTO user, List<String> properties) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (String property : properties) {
+            keys.put(property, switch (property) {
+                case "id" -> user.getId();
+                case "username" -> user.getUsername();
+                default -> throw new IllegalArgumentException("Unsupported scroll key " + property);
+            });
+        }
+        return keys;
+    }
+}
@@ -1,15 +1,86 @@
 package gr.aueb.cf.finalproject.repository;
 
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.dto.UserTableVersionDTO;
 import gr.aueb.cf.finalproject.model.User;
 import gr.aueb.cf.finalproject.model.static_data.Country;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>, UserNaturalIdRepository,
+        UserReadOnlyRepository {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+    boolean existsByUsername(String username);
+    boolean existsByEmail(String email);
+    boolean existsByEmailAndUsernameNot(String email, String username);
     List<User> findByCountry(Country country);
+
+    /**
+     * Lists users straight into {@link UserReadOnlyDTO}, joining only the country name.
+     * No entity is hydrated, so passwords and audit columns are never read and nothing is kept in the persistence context.
+     * Pages and their count are kept in the query cache until the users table changes.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(value = "select new gr.aueb.cf.finalproject.dto.UserReadOnlyDTO(u.id, u.username, u.firstname, u.lastname, u.email, c.name, coalesce(u.isActive, true), u.version) " +
+            "from User u join u.country c",
+            countQuery = "select count(u) from User u")
+    Page<UserReadOnlyDTO> findAllReadOnly(Pageable pageable);
+
+    @Query("select new gr.aueb.cf.finalproject.dto.UserReadOnlyDTO(u.id, u.username, u.firstname, u.lastname, u.email, c.name, coalesce(u.isActive, true), u.version) " +
+            "from User u join u.country c where u.username = :username")
+    Optional<UserReadOnlyDTO> findReadOnlyByUsername(@Param("username") String username);
+
+    /**
+     * The cheap probe behind the ETags of user listings: answered from indexes, the version sum from a scan
+     * of the narrow (updated_at, version) index, no row is hydrated, and from the query cache while the users
+     * table does not change.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select new gr.aueb.cf.finalproject.dto.UserTableVersionDTO(count(u), max(u.id), max(u.updatedAt), coalesce(sum(u.version), 0L)) from User u")
+    UserTableVersionDTO findTableVersion();
+
+    @Query("select new gr.aueb.cf.finalproject.dto.UserReadOnlyDTO(u.id, u.username, u.firstname, u.lastname, u.email, c.name, coalesce(u.isActive, true), u.version) " +
+            "from User u join u.country c where u.id in :ids order by u.id")
+    List<UserReadOnlyDTO> findReadOnlyByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Locks the users among the ids whose active flag differs from the given one, leaving out the excluded username.
+     * The rows stay locked until the bulk update of the same transaction.
+     */
+    @Query(value = "select u.id from users u where u.id in (:ids) and coalesce(u.is_active, true) <> :active " +
+            "and u.username <> :excluded order by u.id for update", nativeQuery = true)
+    List<Long> lockIdsToSetActive(@Param("ids") Collection<Long> ids, @Param("active") boolean active, @Param("excluded") String excluded);
+
+    /**
+     * Sets the active flag of the users in one statement. The version and updated_at are maintained here,
+     * since a bulk update bypasses the entity listeners and the optimistic lock.
+     * Hibernate evicts the users cache regions and the cached user queries afterwards.
+     */
+    @Modifying
+    @Query("update User u set u.isActive = :active, u.updatedAt = :now, u.version = u.version + 1 where u.id in :ids")
+    int setActiveByIds(@Param("ids") Collection<Long> ids, @Param("active") boolean active, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from User u where u.id in :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
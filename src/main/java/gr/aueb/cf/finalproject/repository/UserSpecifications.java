@@ -0,0 +1,55 @@
+package gr.aueb.cf.finalproject.repository;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.model.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Specifications for searching users. Each one matches an index declared on {@link User},
+ * prefixes are matched with LIKE 'prefix%' so that MySQL can seek on them.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> all() {
+        return (root, query, criteriaBuilder) -> null;
+    }
+
+    public static Specification<User> hasCountryId(Long countryId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("country").get("id"), countryId);
+    }
+
+    /**
+     * A user without the flag is active, as in the coalesce(isActive, true) of the listings.
+     * Spelled out as is_active is null or is_active = true, so that the composite indexes on is_active still seek.
+     */
+    public static Specification<User> isActive(Boolean active) {
+        return (root, query, criteriaBuilder) -> active
+                ? criteriaBuilder.or(criteriaBuilder.isNull(root.get("isActive")), criteriaBuilder.isTrue(root.<Boolean>get("isActive")))
+                : criteriaBuilder.isFalse(root.<Boolean>get("isActive"));
+    }
+
+    public static Specification<User> hasRole(Role role) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("role"), role);
+    }
+
+    public static Specification<User> startsWith(String attribute, String prefix) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.like(root.get(attribute), escapeLike(prefix) + "%", '\\');
+    }
+
+    public static Specification<User> createdFrom(LocalDateTime from) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<User> createdBefore(LocalDateTime to) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.lessThan(root.get("createdAt"), to);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
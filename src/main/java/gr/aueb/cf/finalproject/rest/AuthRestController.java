@@ -1,23 +1,28 @@
 package gr.aueb.cf.finalproject.rest;
 
 import gr.aueb.cf.finalproject.authentication.AuthenticationService;
+import gr.aueb.cf.finalproject.authentication.LoginRateLimiter;
+import gr.aueb.cf.finalproject.authentication.RefreshTokenService;
 import gr.aueb.cf.finalproject.core.exceptions.AppObjectNotAuthorizedException;
 import gr.aueb.cf.finalproject.dto.AuthenticationRequestDTO;
 import gr.aueb.cf.finalproject.dto.AuthenticationResponseDTO;
-import gr.aueb.cf.finalproject.model.User;
-import gr.aueb.cf.finalproject.repository.UserRepository;
+import gr.aueb.cf.finalproject.dto.RefreshTokenRequestDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collections;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("api/auth")
@@ -26,27 +31,55 @@ public class AuthRestController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthRestController.class);
     private final AuthenticationService authenticationService;
-    private final UserRepository userRepository;
+    private final LoginRateLimiter loginRateLimiter;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * authenticating the user , also known as login service.
+     * attempts are rate limited per username and client address before any lookup or password check.
+     * behind a trusted proxy the client address is taken from X-Forwarded-For.
      * @param authenticationRequestDTO the username and password of the request.
      * @return 403.Forbidden if user is inactive. 201.OK and JWT if all goes well.
+     * 429.Too Many Requests with Retry-After when over the limit or backing off after failed logins.
      * @throws AppObjectNotAuthorizedException when authentication does not match.
      */
     @PostMapping("/login")
-    public ResponseEntity<?> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO)
+    public ResponseEntity<?> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO,
+                                          HttpServletRequest request)
     throws AppObjectNotAuthorizedException {
-        Optional<User> user = userRepository.findByUsername(authenticationRequestDTO.getUsername());
-        if (user.isPresent() && Boolean.FALSE.equals(user.get().getIsActive())) {
+        String username = authenticationRequestDTO.getUsername();
+        String forwardedFor = String.join(",", Collections.list(request.getHeaders("X-Forwarded-For")));
+        loginRateLimiter.checkAttempt(username, loginRateLimiter.resolveClientIp(request.getRemoteAddr(), forwardedFor));
+
+        AuthenticationResponseDTO authenticationResponseDTO;
+        try {
+            authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
+        } catch (DisabledException e) {
+            // the account state is checked before the password, so this costs no hashing
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of(
                             "error", "inactive",
                             "message", "User account is inactive. Please contact support."
                     ));
+        } catch (AuthenticationException | AppObjectNotAuthorizedException e) {
+            loginRateLimiter.recordFailure(username);
+            throw e;
         }
-        AuthenticationResponseDTO authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
-        LOGGER.info("User Authenticated: {}", authenticationResponseDTO);
+        loginRateLimiter.recordSuccess(username);
+        LOGGER.info("User Authenticated: {}", username);
         return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
     }
+
+    /**
+     * exchanging a refresh token for a new access token and a new refresh token, without the password.
+     * every refresh token can be used once, reusing one revokes all tokens issued from the same login.
+     * @param refreshTokenRequestDTO the refresh token of the last login or refresh.
+     * @return 200.OK with the new access and refresh tokens.
+     * @throws AppObjectNotAuthorizedException if the refresh token is invalid, expired, already used or the user inactive.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthenticationResponseDTO> refresh(@Valid @RequestBody RefreshTokenRequestDTO refreshTokenRequestDTO)
+    throws AppObjectNotAuthorizedException {
+        return ResponseEntity.ok(refreshTokenService.refresh(refreshTokenRequestDTO.getRefreshToken()));
+    }
 }
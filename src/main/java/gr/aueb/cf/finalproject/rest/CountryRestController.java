@@ -0,0 +1,63 @@
+package gr.aueb.cf.finalproject.rest;
+
+import gr.aueb.cf.finalproject.dto.CountryReadOnlyDTO;
+import gr.aueb.cf.finalproject.service.CountryRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class CountryRestController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountryRestController.class);
+    // reference data: cacheable by anyone for a day, revalidated through its ETag afterwards
+    private static final CacheControl COUNTRIES_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+    private final CountryRegistry countryRegistry;
+
+    /**
+     * lists all countries, sorted by name, straight from the in-memory registry.
+     * no authentication is required. answers 304.Not Modified when If-None-Match matches the current ETag.
+     */
+    @GetMapping("/countries")
+    public ResponseEntity<List<CountryReadOnlyDTO>> getCountries(WebRequest webRequest) {
+        String etag = "\"countries-" + countryRegistry.getVersion() + "\"";
+        if (webRequest instanceof ServletWebRequest servletWebRequest && servletWebRequest.getResponse() != null) {
+            servletWebRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, COUNTRIES_CACHE_CONTROL.getHeaderValue());
+        }
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        List<CountryReadOnlyDTO> countries = countryRegistry.findAll().stream()
+                .sorted(Comparator.comparing(CountryReadOnlyDTO::getName))
+                .toList();
+        return ResponseEntity.ok().cacheControl(COUNTRIES_CACHE_CONTROL).eTag(etag).body(countries);
+    }
+
+    /**
+     * reloads the in-memory countries registry from the database, without a restart.
+     * admin role is required.
+     * @return the number of countries loaded.
+     */
+    @PostMapping("/admin/countries/reload")
+    public ResponseEntity<Map<String, Integer>> reloadCountries() {
+        int count = countryRegistry.reload();
+        LOGGER.info("Countries reloaded: {}", count);
+        return ResponseEntity.ok(Map.of("countries", count));
+    }
+}
@@ -1,6 +1,11 @@
 package gr.aueb.cf.finalproject.rest;
 import gr.aueb.cf.finalproject.core.exceptions.AppGenericException;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectPreconditionFailedException;
+import gr.aueb.cf.finalproject.core.exceptions.AppServiceUnavailableException;
+import gr.aueb.cf.finalproject.core.exceptions.AppTooManyRequestsException;
 import gr.aueb.cf.finalproject.core.exceptions.ValidationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -37,4 +42,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    @ExceptionHandler(AppServiceUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceUnavailableException(AppServiceUnavailableException ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("code", ex.getCode());
+        errorResponse.put("message", ex.getMessage());
+        errorResponse.put("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(AppTooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequestsException(AppTooManyRequestsException ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("code", ex.getCode());
+        errorResponse.put("message", ex.getMessage());
+        errorResponse.put("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(AppObjectPreconditionFailedException.class)
+    public ResponseEntity<Map<String, Object>> handlePreconditionFailedException(AppObjectPreconditionFailedException ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("code", ex.getCode());
+        errorResponse.put("message", ex.getMessage());
+        errorResponse.put("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("code", "ConcurrentModification");
+        errorResponse.put("message", "the resource was modified concurrently, read it again and retry.");
+        errorResponse.put("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
 }
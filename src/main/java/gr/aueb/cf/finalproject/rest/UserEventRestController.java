@@ -0,0 +1,48 @@
+package gr.aueb.cf.finalproject.rest;
+
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.finalproject.events.UserEventStream;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class UserEventRestController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserEventRestController.class);
+    private final UserEventStream userEventStream;
+
+    /**
+     * streams user lifecycle events (CREATED, UPDATED, ACTIVATED, DEACTIVATED, DELETED) as server-sent events,
+     * instead of polling the user listings. admin role is required.
+     * a reconnecting client sends Last-Event-ID and first receives the events it missed, a new client may
+     * ask for the retained events after an id with since (0 for all of them).
+     * @throws AppObjectInvalidArgumentException if Last-Event-ID is not an event id.
+     */
+    @GetMapping(value = "/admin/events/users", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                       @RequestParam(value = "since", required = false) Long since)
+            throws AppObjectInvalidArgumentException {
+        Long resumeAfter = since;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                resumeAfter = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new AppObjectInvalidArgumentException("Last-Event-ID", "Invalid event id.");
+            }
+        }
+        LOGGER.info("User event stream opened by {} after event {}",
+                SecurityContextHolder.getContext().getAuthentication().getName(), resumeAfter);
+        return userEventStream.subscribe(resumeAfter);
+    }
+}
@@ -1,13 +1,22 @@
 package gr.aueb.cf.finalproject.rest;
+import gr.aueb.cf.finalproject.core.enums.ExportFormat;
 import gr.aueb.cf.finalproject.core.enums.Role;
 import gr.aueb.cf.finalproject.core.exceptions.*;
 import gr.aueb.cf.finalproject.dto.AuthenticationResponseDTO;
+import gr.aueb.cf.finalproject.dto.UserBulkRequestDTO;
+import gr.aueb.cf.finalproject.dto.UserBulkResultDTO;
+import gr.aueb.cf.finalproject.dto.UserImportResultDTO;
 import gr.aueb.cf.finalproject.dto.UserInsertDTO;
 import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.dto.UserSearchCriteria;
+import gr.aueb.cf.finalproject.dto.UserTokenClaimsDTO;
 import gr.aueb.cf.finalproject.dto.UserUpdateDTO;
+import gr.aueb.cf.finalproject.dto.UserWindowDTO;
 import gr.aueb.cf.finalproject.model.User;
-import gr.aueb.cf.finalproject.repository.UserRepository;
 import gr.aueb.cf.finalproject.security.JwtService;
+import gr.aueb.cf.finalproject.service.UserBulkService;
+import gr.aueb.cf.finalproject.service.UserExportService;
+import gr.aueb.cf.finalproject.service.UserImportService;
 import gr.aueb.cf.finalproject.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -15,11 +24,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.Locale;
 import java.util.Objects;
 
 
@@ -28,9 +48,13 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class UserRestController {
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final UserBulkService userBulkService;
     private final JwtService jwtService;
-    private final UserRepository userRepository;
-    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserRestController.class);
+    // listings may be kept by the client, but only used after revalidating their ETag
+    private static final CacheControl LISTING_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
 
     /**
      *  Takes a UserInsertDTO post request and saves the user to the database
@@ -64,8 +88,10 @@ public class UserRestController {
      */
     @PutMapping("/user/{username}/update")
     public ResponseEntity<AuthenticationResponseDTO> updateUser(@PathVariable("username") String username,
-                                                      @Valid @RequestBody UserUpdateDTO userUpdateDTO, BindingResult bindingResult)
-            throws ValidationException, AppObjectInvalidArgumentException, DataIntegrityViolationException, AppObjectNotAuthorizedException, AppObjectNotFoundException, AppObjectAlreadyExistsException {
+                                                      @Valid @RequestBody UserUpdateDTO userUpdateDTO, BindingResult bindingResult,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws ValidationException, AppObjectInvalidArgumentException, DataIntegrityViolationException, AppObjectNotAuthorizedException, AppObjectNotFoundException, AppObjectAlreadyExistsException,
+            AppObjectPreconditionFailedException {
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
         }
@@ -74,23 +100,23 @@ public class UserRestController {
         if (!username.equals(authenticatedUsername)) {
             throw new AppObjectNotAuthorizedException("User Update","not authorized");
         }
-        UserReadOnlyDTO updatedUser = userService.updateUser(username,userUpdateDTO);
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new AppObjectNotFoundException("User","not found"));
+        UserTokenClaimsDTO updatedUser = userService.updateUser(username, userUpdateDTO, toExpectedVersion(ifMatch));
 
         AuthenticationResponseDTO authenticationResponseDTO = new AuthenticationResponseDTO();
-        String token =jwtService.generateToken(user.getUsername(), user.getRole().name(), user.getFirstname(),user.getLastname(), user.getEmail(), user.getBirthdate().toString(), user.getCountry().getName());
+        String token =jwtService.generateToken(updatedUser);
         authenticationResponseDTO.setToken(token);
-        LOGGER.info("User updated: {}", updatedUser);
-        return ResponseEntity.ok(authenticationResponseDTO);
+        LOGGER.info("User updated: {}", updatedUser.getUsername());
+        return ResponseEntity.ok().eTag(toETag(updatedUser.getVersion())).body(authenticationResponseDTO);
         }
 
     /**
-     * deactivating a user to avoid permanent delete. same logic as  {@link #updateUser(String, UserUpdateDTO, BindingResult)}, but this one can also be done by admin role authority.
+     * deactivating a user to avoid permanent delete. same logic as  {@link #updateUser(String, UserUpdateDTO, BindingResult, String)}, but this one can also be done by admin role authority.
      * @throws AppObjectNotAuthorizedException admin role or authenticated user required.
      */
     @PutMapping("/user/{username}/deactivate")
-    public ResponseEntity<Void> deactivateUser(@PathVariable("username") String username) throws AppObjectNotAuthorizedException, AppObjectInvalidArgumentException, AppObjectNotFoundException {
+    public ResponseEntity<Void> deactivateUser(@PathVariable("username") String username,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws AppObjectNotAuthorizedException, AppObjectInvalidArgumentException, AppObjectNotFoundException, AppObjectPreconditionFailedException {
 
         String authenticatedUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         String userRole = SecurityContextHolder.getContext().getAuthentication().getAuthorities().iterator().next().getAuthority();
@@ -98,9 +124,9 @@ public class UserRestController {
         if ((!username.equals(authenticatedUsername)) && !Objects.equals(userRole, Role.ADMIN.toString())) {
             throw new AppObjectNotAuthorizedException("User deletion ","not authorized");
         }
-        UserReadOnlyDTO updatedUser = userService.setUserInactive(username);
-        LOGGER.info("User deactivated: {}", updatedUser);
-        return ResponseEntity.noContent().build();
+        UserReadOnlyDTO updatedUser = userService.setUserInactive(username, toExpectedVersion(ifMatch));
+        LOGGER.info("User deactivated: {}", updatedUser.getUsername());
+        return ResponseEntity.noContent().eTag(toETag(updatedUser.getVersion())).build();
     }
 
     /**
@@ -119,11 +145,13 @@ public class UserRestController {
     }
 
     /**
-     *activating a user to avoid permanent delete. same logic as  {@link #updateUser(String, UserUpdateDTO, BindingResult)}, but this one can also be done by admin role authority.
+     *activating a user to avoid permanent delete. same logic as  {@link #updateUser(String, UserUpdateDTO, BindingResult, String)}, but this one can also be done by admin role authority.
      * @throws AppObjectNotAuthorizedException admin role, or authenticated user required.
      */
     @PutMapping("/user/{username}/activate")
-    public ResponseEntity<Void> activateUser(@PathVariable("username") String username) throws AppObjectNotAuthorizedException, AppObjectInvalidArgumentException, AppObjectNotFoundException {
+    public ResponseEntity<Void> activateUser(@PathVariable("username") String username,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws AppObjectNotAuthorizedException, AppObjectInvalidArgumentException, AppObjectNotFoundException, AppObjectPreconditionFailedException {
 
         String authenticatedUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         String userRole = SecurityContextHolder.getContext().getAuthentication().getAuthorities().iterator().next().getAuthority();
@@ -131,23 +159,220 @@ public class UserRestController {
         if ((!username.equals(authenticatedUsername)) && !Objects.equals(userRole, Role.ADMIN.toString())) {
             throw new AppObjectNotAuthorizedException("User activation ","not authorized");
         }
-        UserReadOnlyDTO updatedUser = userService.setUserActive(username);
-        LOGGER.info("User activated: {}", updatedUser);
-        return ResponseEntity.noContent().build();
+        UserReadOnlyDTO updatedUser = userService.setUserActive(username, toExpectedVersion(ifMatch));
+        LOGGER.info("User activated: {}", updatedUser.getUsername());
+        return ResponseEntity.noContent().eTag(toETag(updatedUser.getVersion())).build();
+    }
+
+    /**
+     * reads a single user. same logic as {@link #deactivateUser(String, String)}, the user itself or an admin may read it.
+     * the ETag is the version of the user, to be sent back as If-Match with an update, activation or deactivation.
+     * @throws AppObjectNotAuthorizedException admin role, or authenticated user required.
+     * @throws AppObjectNotFoundException if the username does not match a user.
+     */
+    @GetMapping("/user/{username}")
+    public ResponseEntity<UserReadOnlyDTO> getUser(@PathVariable("username") String username, WebRequest webRequest)
+            throws AppObjectNotAuthorizedException, AppObjectNotFoundException {
+
+        String authenticatedUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        String userRole = SecurityContextHolder.getContext().getAuthentication().getAuthorities().iterator().next().getAuthority();
+
+        if ((!username.equals(authenticatedUsername)) && !Objects.equals(userRole, Role.ADMIN.toString())) {
+            throw new AppObjectNotAuthorizedException("User read ","not authorized");
+        }
+        UserReadOnlyDTO user = userService.getUser(username);
+        if (webRequest.checkNotModified(toETag(user.getVersion()))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(LISTING_CACHE_CONTROL).body(user);
     }
 
     /**
      *  produces a paginated list of all the users.
+     *  answers 304.Not Modified without querying the users when If-None-Match matches the current ETag.
      * @param page the page that is returned
      * @param size the size of each page when it is generated.
      */
     @GetMapping("/users")
     public ResponseEntity<Page<UserReadOnlyDTO>> getPaginatedUsers(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "5") int size
+            @RequestParam(defaultValue = "5") int size,
+            WebRequest webRequest
             ) {
 
+        if (isNotModified(webRequest)) {
+            return null;
+        }
         Page<UserReadOnlyDTO> usersPage = userService.getPaginatedUsers(page, size);
-        return new ResponseEntity<>(usersPage, HttpStatus.OK);
+        return ResponseEntity.ok().cacheControl(LISTING_CACHE_CONTROL).body(usersPage);
+    }
+
+    /**
+     * produces a window of users with keyset (cursor) pagination, selected with mode=keyset.
+     * it does not count the users table and deep windows are as fast as the first one.
+     * answers 304.Not Modified when If-None-Match matches the current ETag.
+     * @param cursor the nextCursor or prevCursor of a previous window, empty for the first window.
+     * @param size the maximum size of the window.
+     * @param sort the sort key, id or username.
+     * @throws AppObjectInvalidArgumentException if the cursor or the sort key is invalid.
+     */
+    @GetMapping(value = "/users", params = "mode=keyset")
+    public ResponseEntity<UserWindowDTO> getUsersWindow(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            WebRequest webRequest
+            ) throws AppObjectInvalidArgumentException {
+
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        UserWindowDTO usersWindow = userService.getUsersWindow(cursor, Math.max(1, Math.min(size, 100)), sort);
+        return ResponseEntity.ok().cacheControl(LISTING_CACHE_CONTROL).body(usersWindow);
+    }
+
+    /**
+     * searches users by country, active flag, name/email prefix, role and creation date range.
+     * filtering and sorting happen in the database on indexed columns.
+     * answers 304.Not Modified when If-None-Match matches the current ETag.
+     * @param criteria the filters, any of countryName, active, lastnamePrefix, firstnamePrefix, emailPrefix, role, createdFrom, createdTo.
+     * @param sort one of id, username, firstname, lastname, email, createdAt.
+     * @param direction ASC or DESC.
+     * @throws AppObjectInvalidArgumentException if the country or the sort field is invalid.
+     */
+    @GetMapping("/users/search")
+    public ResponseEntity<Page<UserReadOnlyDTO>> searchUsers(
+            @ModelAttribute UserSearchCriteria criteria,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            WebRequest webRequest
+            ) throws AppObjectInvalidArgumentException {
+
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        Page<UserReadOnlyDTO> usersPage = userService.searchUsers(criteria, page, Math.max(1, Math.min(size, 100)), sort, direction);
+        return ResponseEntity.ok().cacheControl(LISTING_CACHE_CONTROL).body(usersPage);
+    }
+
+    /**
+     * streams every user matching the search filters as NDJSON or CSV, straight to the response.
+     * takes the same filters as {@link #searchUsers(UserSearchCriteria, int, int, String, Sort.Direction, WebRequest)}.
+     * @param format ndjson or csv.
+     * @throws AppObjectInvalidArgumentException if the country or the format is invalid.
+     */
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @ModelAttribute UserSearchCriteria criteria,
+            @RequestParam(defaultValue = "ndjson") String format
+            ) throws AppObjectInvalidArgumentException {
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new AppObjectInvalidArgumentException("Format", "Unsupported export format.");
+        }
+        Specification<User> specification = userService.toSpecification(criteria);
+        StreamingResponseBody body = outputStream -> userExportService.export(specification, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == ExportFormat.CSV ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + exportFormat.name().toLowerCase(Locale.ROOT))
+                .body(body);
+    }
+
+    /**
+     * imports users in bulk from a JSON array of user objects (application/json)
+     * or a CSV document with a header row (text/csv). The body is read as a stream.
+     * @return the number of imported and failed rows, with the outcome of every row.
+     * @throws AppObjectInvalidArgumentException if the document itself is malformed.
+     */
+    @PostMapping(value = "/users/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<UserImportResultDTO> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                           InputStream body) throws AppObjectInvalidArgumentException {
+        UserImportResultDTO result = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)
+                ? userImportService.importJson(body)
+                : userImportService.importCsv(body);
+        LOGGER.info("Users imported: {}, failed: {}", result.getImported(), result.getFailed());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * deactivates many users at once, given by id or by the filters of {@link #searchUsers(UserSearchCriteria, int, int, String, Sort.Direction, WebRequest)}.
+     * runs as chunked set-based updates, revoking the tokens of every deactivated user. the admin running it is left out.
+     * @return how many users were selected and deactivated, and how many refresh tokens were revoked.
+     * @throws AppObjectInvalidArgumentException if neither or both of ids and criteria are given, or the country is invalid.
+     */
+    @PostMapping("/users/bulk/deactivate")
+    public ResponseEntity<UserBulkResultDTO> bulkDeactivateUsers(@RequestBody UserBulkRequestDTO request)
+            throws AppObjectInvalidArgumentException {
+        String authenticatedUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        UserBulkResultDTO result = userBulkService.deactivate(request, authenticatedUsername);
+        LOGGER.info("Users deactivated in bulk by {}: {} of {}", authenticatedUsername, result.getAffected(), result.getSelected());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * activates many users at once. same logic as {@link #bulkDeactivateUsers(UserBulkRequestDTO)}.
+     * @throws AppObjectInvalidArgumentException if neither or both of ids and criteria are given, or the country is invalid.
+     */
+    @PostMapping("/users/bulk/activate")
+    public ResponseEntity<UserBulkResultDTO> bulkActivateUsers(@RequestBody UserBulkRequestDTO request)
+            throws AppObjectInvalidArgumentException {
+        String authenticatedUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        UserBulkResultDTO result = userBulkService.activate(request, authenticatedUsername);
+        LOGGER.info("Users activated in bulk by {}: {} of {}", authenticatedUsername, result.getAffected(), result.getSelected());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * deletes many users at once, with their refresh tokens. same logic as {@link #bulkDeactivateUsers(UserBulkRequestDTO)}.
+     * @throws AppObjectInvalidArgumentException if neither or both of ids and criteria are given, or the country is invalid.
+     */
+    @PostMapping("/users/bulk/delete")
+    public ResponseEntity<UserBulkResultDTO> bulkDeleteUsers(@RequestBody UserBulkRequestDTO request)
+            throws AppObjectInvalidArgumentException {
+        String authenticatedUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        UserBulkResultDTO result = userBulkService.delete(request, authenticatedUsername);
+        LOGGER.info("Users deleted in bulk by {}: {} of {}", authenticatedUsername, result.getAffected(), result.getSelected());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * checks If-None-Match against the current users version without running the listing query.
+     * sets the ETag (and the caching policy, also on a 304) on the response.
+     * @return true when the client's copy is current and a 304 has been prepared.
+     */
+    private boolean isNotModified(WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest && servletWebRequest.getResponse() != null) {
+            servletWebRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, LISTING_CACHE_CONTROL.getHeaderValue());
+        }
+        return webRequest.checkNotModified(userService.getUsersVersion());
+    }
+
+    private static String toETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * reads the version the client expects from If-Match, a single strong ETag as produced by {@link #toETag(long)}.
+     * @return the expected version, or null when the header is absent or "*" (any version).
+     * @throws AppObjectPreconditionFailedException if the header names anything else, since it cannot match.
+     */
+    private static Long toExpectedVersion(String ifMatch) throws AppObjectPreconditionFailedException {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through, a foreign tag never matches
+            }
+        }
+        throw new AppObjectPreconditionFailedException("User", "If-Match does not match the current version of the user.");
     }
 }
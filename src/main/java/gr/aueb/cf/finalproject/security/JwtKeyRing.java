@@ -0,0 +1,74 @@
+package gr.aueb.cf.finalproject.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the HMAC keys decoded once at startup and a single thread-safe
+ * {@link JwtParser} that picks the verification key by the token's kid header.
+ * Tokens without a kid (issued before key ids were introduced) are checked
+ * against the active key. Tokens from any other issuer are rejected.
+ */
+@Component
+public class JwtKeyRing {
+
+    private final String activeKeyId;
+    private final Key signingKey;
+    private final Map<String, Key> verificationKeys;
+    private final JwtParser parser;
+
+    public JwtKeyRing(JwtProperties jwtProperties) {
+        Map<String, Key> keys = new HashMap<>();
+        jwtProperties.getKeys().forEach((kid, secret) -> keys.put(kid, Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret))));
+        if (!keys.containsKey(jwtProperties.getActiveKeyId())) {
+            throw new IllegalStateException("No JWT key configured for active key id " + jwtProperties.getActiveKeyId());
+        }
+        this.activeKeyId = jwtProperties.getActiveKeyId();
+        this.signingKey = keys.get(activeKeyId);
+        this.verificationKeys = Map.copyOf(keys);
+        this.parser = Jwts
+                .parserBuilder()
+                .setSigningKeyResolver(new KeyIdResolver())
+                .requireIssuer(jwtProperties.getIssuer())
+                .build();
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    private class KeyIdResolver extends SigningKeyResolverAdapter {
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            String kid = header.getKeyId();
+            if (kid == null) {
+                return signingKey;
+            }
+            Key key = verificationKeys.get(kid);
+            if (key == null) {
+                throw new UnsupportedJwtException("Unknown signing key id " + kid);
+            }
+            return key;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package gr.aueb.cf.finalproject.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JWT settings bound from the app.jwt.* properties.
+ * Every entry of {@link #keys} is a Base64 HS256 secret under its key id (kid).
+ * New tokens are signed with {@link #activeKeyId}, while all listed keys
+ * are accepted for verification, so a key can be rotated out gradually.
+ * Access tokens live {@link #expiration} milliseconds, refresh tokens {@link #refreshExpiration}.
+ * Tokens carry {@link #issuer} as their iss claim and are only accepted with it.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.jwt")
+@Getter
+@Setter
+public class JwtProperties {
+    private Map<String, String> keys = new HashMap<>();
+    private String activeKeyId;
+    private String issuer = "self";
+    private long expiration = 900000;  // 15 minutes in milliseconds
+    private Duration refreshExpiration = Duration.ofDays(30);
+}
@@ -1,25 +1,28 @@
 package gr.aueb.cf.finalproject.security;
 
+import gr.aueb.cf.finalproject.dto.UserTokenClaimsDTO;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
-    private final String secretKey = "5ce98d378ec88ea09ba8bcd511ef23645f04cc8e70b9134b98723a53c275bbc5";
-    private final long jwtExpiration = 10800000;  // 3 hours in milliseconds
+    private final JwtKeyRing keyRing;
+    private final JwtProperties jwtProperties;
 
 
+    @Timed(value = "jwt.sign", histogram = true)
     public String generateToken(String username, String role,String firstname,String lastname, String email, String dateOfBirth,String countryName) {
         var claims = new HashMap<String, Object>();
         claims.put("role", role);
@@ -29,22 +32,49 @@ public class JwtService {
         claims.put("dateOfBirth", dateOfBirth);
         claims.put("countryName", countryName);
         claims.put("username", username);
+        long now = System.currentTimeMillis();
         return Jwts
                 .builder()
-                .setIssuer("self") // todo
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
                 .setClaims(claims)
+                .setIssuer(jwtProperties.getIssuer())
                 .setSubject(username)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + jwtProperties.getExpiration()))
+                .signWith(keyRing.getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    @Timed(value = "jwt.sign", histogram = true)
+    public String generateToken(UserTokenClaimsDTO user) {
+        return generateToken(user.getUsername(), user.getRole(), user.getFirstname(), user.getLastname(),
+                user.getEmail(), user.getDateOfBirth(), user.getCountryName());
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
         final String subject = extractSubject(token);
         return (subject.equals(userDetails.getUsername())) && !isTokenExpired(token);
     }
 
+    public boolean isTokenValid(VerifiedClaims claims, UserDetails userDetails) {
+        return claims.subject().equals(userDetails.getUsername()) && !claims.isExpired();
+    }
+
+    /**
+     * Parses the token and checks its signature exactly once.
+     * @param token the compact JWT.
+     * @return the verified claims of the token.
+     */
+    @Timed(value = "jwt.verify", histogram = true)
+    public VerifiedClaims verify(String token) {
+        final Claims claims = extractAllClaims(token);
+        return new VerifiedClaims(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant(),
+                claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+    }
+
     public String getStringClaim(String token, String claim) {
         return extractAllClaims(token).get(claim, String.class);
     }
@@ -66,24 +96,13 @@ public class JwtService {
         return extractClaim(token, Claims::getExpiration);
     }
 
+    /**
+     * Parses the token with the shared parser of {@link JwtKeyRing}.
+     * The parser is immutable and thread-safe, so nothing is decoded or built per call.
+     */
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return keyRing.getParser()
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    /**
-     * Creates a HS256 Key. Key is an interface.
-     * Starting from secretKey we get a byte array
-     * of the secret. Then we get the {@link javax.crypto.SecretKey,
-     * class that implements the {@link Key } interface
-     * @return  a SecretKey which implements Key.
-     */
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-}
\ No newline at end of file
+}
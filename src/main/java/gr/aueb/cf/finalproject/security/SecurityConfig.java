@@ -2,6 +2,7 @@ package gr.aueb.cf.finalproject.security;
 
 import gr.aueb.cf.finalproject.authentication.JwtAuthenticationFilter;
 import gr.aueb.cf.finalproject.core.enums.Role;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -45,12 +46,17 @@ public class SecurityConfig {
                 .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(myCustomAuthenticationEntryPoint()))
                 .exceptionHandling(exceptions -> exceptions.accessDeniedHandler(myCustomAccessDeniedHandler()))
                 .authorizeHttpRequests(req -> req
+                        // the async dispatch of a streamed response (export, event stream) continues an already authorized request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Allow OPTIONS requests
                         .requestMatchers("/api/auth/login").permitAll()
+                        .requestMatchers("/api/auth/refresh").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/countries").permitAll()
                         .requestMatchers("/api/users/save").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll() // for docs
                         .requestMatchers("/v3/**").permitAll() // for docs
                         .requestMatchers("/api/users/**").hasAnyAuthority( Role.ADMIN.name())
+                        .requestMatchers("/api/admin/**").hasAnyAuthority( Role.ADMIN.name())
                         .requestMatchers("/**").authenticated()
                 )
                 .sessionManagement((session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)))
@@ -0,0 +1,29 @@
+package gr.aueb.cf.finalproject.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digests of tokens, used wherever a token is stored or looked up
+ * by its hash instead of its raw value.
+ */
+public final class TokenDigests {
+
+    private TokenDigests() {
+    }
+
+    /**
+     * @param token a compact JWT or a Base64url refresh token, both plain ASCII.
+     * @return the lower case hex SHA-256 digest of the token.
+     */
+    public static String sha256Hex(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
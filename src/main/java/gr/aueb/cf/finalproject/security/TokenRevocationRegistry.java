@@ -0,0 +1,59 @@
+package gr.aueb.cf.finalproject.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * In-memory record of the last security relevant change per user (deactivation, deletion, role change).
+ * Tokens issued before that change are rejected. An entry is only kept as long as a token
+ * issued before it could still be valid, so the registry stays small.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    private final Cache<String, Instant> revokedBefore;
+
+    public TokenRevocationRegistry(JwtProperties jwtProperties) {
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(jwtProperties.getExpiration()))
+                .build();
+    }
+
+    /**
+     * Rejects every token of the user issued up to the commit of the current transaction,
+     * or up to now when there is none. Revoking after the commit means a rolled back change
+     * logs nobody out, and a login that still saw the old state before the commit is revoked too.
+     * The issued-at claim has second precision, so every token issued in the second of the change is rejected:
+     * a token minted earlier in that second carries the same issued-at as one minted right after the change.
+     * The user only has to log in again a second later.
+     * @param username the user whose tokens are revoked.
+     */
+    public void revokeAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revoke(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revoke(username);
+            }
+        });
+    }
+
+    public boolean isRevoked(VerifiedClaims claims) {
+        Instant cutoff = revokedBefore.getIfPresent(claims.subject());
+        return cutoff != null && (claims.issuedAt() == null || !claims.issuedAt().isAfter(cutoff));
+    }
+
+    private void revoke(String username) {
+        revokedBefore.put(username, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+}
@@ -0,0 +1,19 @@
+package gr.aueb.cf.finalproject.security;
+
+import java.time.Instant;
+
+/**
+ * The claims of a JWT whose signature has already been checked.
+ * Built once per token by {@link JwtService#verify(String)} so that
+ * callers never have to parse the same token twice.
+ * @param subject the subject (username) of the token.
+ * @param role the role claim of the token.
+ * @param issuedAt when the token was issued.
+ * @param expiresAt when the token stops being valid.
+ */
+public record VerifiedClaims(String subject, String role, Instant issuedAt, Instant expiresAt) {
+
+    public boolean isExpired() {
+        return expiresAt != null && !expiresAt.isAfter(Instant.now());
+    }
+}
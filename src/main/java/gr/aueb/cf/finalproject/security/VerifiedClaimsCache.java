@@ -0,0 +1,75 @@
+package gr.aueb.cf.finalproject.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Bounded cache of already verified tokens, keyed by the SHA-256 digest of the token.
+ * An entry lives until the token's own expiration, so a bearer token that is sent
+ * again and again is only HMAC-checked once. Hits, misses and evictions are
+ * published as the "jwtClaims" cache on the actuator metrics endpoint.
+ */
+@Component
+public class VerifiedClaimsCache {
+
+    private final JwtService jwtService;
+    private final Cache<String, VerifiedClaims> cache;
+
+    public VerifiedClaimsCache(JwtService jwtService, MeterRegistry meterRegistry,
+                               @Value("${app.jwt.claims-cache.maximum-size:10000}") long maximumSize) {
+        this.jwtService = jwtService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtClaims");
+    }
+
+    /**
+     * Returns the verified claims of the token, checking its signature only on a cache miss.
+     * @param token the compact JWT.
+     * @return the verified claims.
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired.
+     */
+    public VerifiedClaims verify(String token) {
+        String key = TokenDigests.sha256Hex(token);
+        VerifiedClaims claims = cache.getIfPresent(key);
+        if (claims != null && !claims.isExpired()) {
+            return claims;
+        }
+        // parsed outside of the cache's compute so that HMAC work never runs under a map lock
+        claims = jwtService.verify(token);
+        cache.put(key, claims);
+        return claims;
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedClaims value, long currentTime) {
+            if (value.expiresAt() == null) {
+                return 0;
+            }
+            return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedClaims value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedClaims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package gr.aueb.cf.finalproject.service;
+
+import gr.aueb.cf.finalproject.dto.CountryReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.static_data.Country;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Read-only, in-memory copy of the static countries table.
+ * Loaded once every singleton exists and before the web server starts, so no request ever sees
+ * an empty registry, and swapped as a whole on {@link #reload()},
+ * so lookups by id, ISO code or (case-insensitive) name never hit the database.
+ * Every snapshot carries a version derived from its contents, which only changes
+ * when a reload actually changes a country and is the same on every node.
+ */
+@Service
+@RequiredArgsConstructor
+public class CountryRegistry implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountryRegistry.class);
+    private final CountryRepository countryRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), Map.of(), "0");
+
+    /**
+     * Loads the countries before traffic is served.
+     * @throws IllegalStateException if the countries table is empty, since no user could be created or mapped.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (reload() == 0) {
+            throw new IllegalStateException("The countries table is empty, load sql/countries.sql before starting the application");
+        }
+    }
+
+    /**
+     * Re-reads the countries table and replaces the registry contents.
+     * Cached countries and cached query results, which may hold country names, are evicted first.
+     * @return the number of countries loaded.
+     */
+    public int reload() {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(Country.class);
+        cache.evictQueryRegions();
+        Map<Long, CountryReadOnlyDTO> byId = new HashMap<>();
+        Map<String, CountryReadOnlyDTO> byName = new HashMap<>();
+        Map<String, CountryReadOnlyDTO> byIso = new HashMap<>();
+        countryRepository.findAll().forEach(country -> {
+            CountryReadOnlyDTO dto = new CountryReadOnlyDTO(country.getId(), country.getName(), country.getISO());
+            byId.put(dto.getId(), dto);
+            byName.put(normalize(dto.getName()), dto);
+            if (dto.getIso() != null) {
+                byIso.put(normalize(dto.getIso()), dto);
+            }
+        });
+        snapshot = new Snapshot(Map.copyOf(byId), Map.copyOf(byName), Map.copyOf(byIso), version(byId));
+        LOGGER.info("Loaded {} countries", byId.size());
+        return byId.size();
+    }
+
+    public Optional<CountryReadOnlyDTO> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot.byId().get(id));
+    }
+
+    public Optional<CountryReadOnlyDTO> findByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(snapshot.byName().get(normalize(name)));
+    }
+
+    public Optional<CountryReadOnlyDTO> findByIso(String iso) {
+        return iso == null ? Optional.empty() : Optional.ofNullable(snapshot.byIso().get(normalize(iso)));
+    }
+
+    public Collection<CountryReadOnlyDTO> findAll() {
+        return List.copyOf(snapshot.byId().values());
+    }
+
+    /**
+     * @return the version of the loaded countries, for ETags of responses that contain country names.
+     */
+    public String getVersion() {
+        return snapshot.version();
+    }
+
+    private static String version(Map<Long, CountryReadOnlyDTO> byId) {
+        long hash = 17;
+        for (CountryReadOnlyDTO country : byId.values().stream().sorted(Comparator.comparingLong(CountryReadOnlyDTO::getId)).toList()) {
+            hash = 31 * hash + Objects.hash(country.getId(), country.getName(), country.getIso());
+        }
+        return Long.toHexString(hash);
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<Long, CountryReadOnlyDTO> byId,
+                            Map<String, CountryReadOnlyDTO> byName,
+                            Map<String, CountryReadOnlyDTO> byIso,
+                            String version) {
+    }
+}
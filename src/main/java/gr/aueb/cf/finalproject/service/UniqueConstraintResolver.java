@@ -0,0 +1,79 @@
+package gr.aueb.cf.finalproject.service;
+
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectAlreadyExistsException;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+
+/**
+ * Maps a unique constraint violation on the users table to the same
+ * {@link AppObjectAlreadyExistsException} codes the up-front checks used to raise.
+ * The constraint name is read from the driver message. Only when it is not one of the named
+ * constraints (e.g. a schema created before they were named) the database is probed,
+ * in a new transaction since the failed one can no longer be used.
+ */
+@Component
+public class UniqueConstraintResolver {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate probeTransactionTemplate;
+
+    public UniqueConstraintResolver(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.probeTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.probeTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.probeTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @param username the username that was inserted.
+     * @param email the email that was inserted.
+     * @return the exception to throw, or null if the violation is not about username or email.
+     */
+    public AppObjectAlreadyExistsException resolve(DataIntegrityViolationException e, String username, String email) {
+        return resolve(e, username, email, null);
+    }
+
+    /**
+     * The probe leaves out the updated user itself, whose own row always holds its email.
+     * @param updatedUsername the username of the user that was updated, which is not written.
+     * @param email the email that was written.
+     * @return the exception to throw, or null if the violation is not about the email.
+     */
+    public AppObjectAlreadyExistsException resolveUpdate(DataIntegrityViolationException e, String updatedUsername, String email) {
+        return resolve(e, null, email, updatedUsername);
+    }
+
+    private AppObjectAlreadyExistsException resolve(DataIntegrityViolationException e, String username, String email,
+                                                    String updatedUsername) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        if (message.contains("uk_users_username")) {
+            return usernameExists(username);
+        }
+        if (message.contains("uk_users_email")) {
+            return emailExists(email);
+        }
+        if (username != null && Boolean.TRUE.equals(probeTransactionTemplate.execute(status -> userRepository.existsByUsername(username)))) {
+            return usernameExists(username);
+        }
+        if (email != null && Boolean.TRUE.equals(probeTransactionTemplate.execute(status -> updatedUsername == null
+                ? userRepository.existsByEmail(email)
+                : userRepository.existsByEmailAndUsernameNot(email, updatedUsername)))) {
+            return emailExists(email);
+        }
+        return null;
+    }
+
+    private static AppObjectAlreadyExistsException usernameExists(String username) {
+        return new AppObjectAlreadyExistsException("Username", username + " already exists.");
+    }
+
+    private static AppObjectAlreadyExistsException emailExists(String email) {
+        return new AppObjectAlreadyExistsException("Email", email + " already exists.");
+    }
+}
@@ -0,0 +1,180 @@
+package gr.aueb.cf.finalproject.service;
+
+import gr.aueb.cf.finalproject.authentication.RefreshTokenService;
+import gr.aueb.cf.finalproject.authentication.UserDetailsCache;
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.finalproject.dto.UserBulkRequestDTO;
+import gr.aueb.cf.finalproject.dto.UserBulkResultDTO;
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import gr.aueb.cf.finalproject.security.TokenRevocationRegistry;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Activates, deactivates and deletes many users with set-based statements, one chunk of ids per transaction.
+ * A chunk costs a fixed handful of round-trips whatever its size: the ids are locked or read once,
+ * changed with a single UPDATE or DELETE, and their refresh tokens and outbox events are written in bulk too.
+ * A failing chunk rolls back alone, the chunks before it stay committed.
+ */
+@Service
+@Timed(value = "user.bulk", histogram = true)
+public class UserBulkService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserBulkService.class);
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final UserDetailsCache userDetailsCache;
+    private final UserEventOutbox userEventOutbox;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public UserBulkService(UserRepository userRepository, UserService userService, RefreshTokenService refreshTokenService,
+                           TokenRevocationRegistry tokenRevocationRegistry, UserDetailsCache userDetailsCache,
+                           UserEventOutbox userEventOutbox, EntityManager entityManager, PlatformTransactionManager transactionManager,
+                           @Value("${app.bulk.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.userDetailsCache = userDetailsCache;
+        this.userEventOutbox = userEventOutbox;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @param excludedUsername the admin running the operation, who is never deactivated by it.
+     */
+    public UserBulkResultDTO deactivate(UserBulkRequestDTO request, String excludedUsername) throws AppObjectInvalidArgumentException {
+        return run(request, ids -> setActive(ids, false, excludedUsername));
+    }
+
+    public UserBulkResultDTO activate(UserBulkRequestDTO request, String excludedUsername) throws AppObjectInvalidArgumentException {
+        return run(request, ids -> setActive(ids, true, excludedUsername));
+    }
+
+    /**
+     * @param excludedUsername the admin running the operation, who is never deleted by it.
+     */
+    public UserBulkResultDTO delete(UserBulkRequestDTO request, String excludedUsername) throws AppObjectInvalidArgumentException {
+        return run(request, ids -> delete(ids, excludedUsername));
+    }
+
+    private UserBulkResultDTO run(UserBulkRequestDTO request, ChunkOperation operation) throws AppObjectInvalidArgumentException {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getCriteria() != null)) {
+            throw new AppObjectInvalidArgumentException("Bulk", "Either ids or criteria are required, not both.");
+        }
+        UserBulkResultDTO result = new UserBulkResultDTO();
+        if (byIds) {
+            List<Long> ids = request.getIds().stream().filter(Objects::nonNull).distinct().sorted().toList();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                apply(ids.subList(from, Math.min(from + chunkSize, ids.size())), operation, result);
+            }
+        } else {
+            Specification<User> specification = userService.toSpecification(request.getCriteria());
+            long afterId = 0;
+            List<Long> ids;
+            while (!(ids = findIds(specification, afterId)).isEmpty()) {
+                apply(ids, operation, result);
+                afterId = ids.get(ids.size() - 1);
+            }
+        }
+        return result;
+    }
+
+    private void apply(List<Long> ids, ChunkOperation operation, UserBulkResultDTO result) {
+        ChunkResult chunk = transactionTemplate.execute(status -> operation.apply(ids));
+        result.setSelected(result.getSelected() + ids.size());
+        result.setChunks(result.getChunks() + 1);
+        if (chunk != null) {
+            result.setAffected(result.getAffected() + chunk.affected());
+            result.setRefreshTokens(result.getRefreshTokens() + chunk.refreshTokens());
+        }
+    }
+
+    private ChunkResult setActive(List<Long> ids, boolean active, String excludedUsername) {
+        List<Long> changing = userRepository.lockIdsToSetActive(ids, active, excludedUsername);
+        if (changing.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+        int affected = userRepository.setActiveByIds(changing, active, LocalDateTime.now());
+        List<UserReadOnlyDTO> users = userRepository.findReadOnlyByIds(changing);
+        int refreshTokens = active ? 0 : refreshTokenService.revokeAll(changing);
+        userEventOutbox.recordBulk(active ? UserEventType.ACTIVATED : UserEventType.DEACTIVATED, users);
+        for (UserReadOnlyDTO user : users) {
+            if (!active) {
+                tokenRevocationRegistry.revokeAfterCommit(user.getUsername());
+            }
+            userDetailsCache.evictAfterCommit(user.getUsername());
+        }
+        return new ChunkResult(affected, refreshTokens);
+    }
+
+    private ChunkResult delete(List<Long> ids, String excludedUsername) {
+        List<UserReadOnlyDTO> users = userRepository.findReadOnlyByIds(ids).stream()
+                .filter(user -> !user.getUsername().equals(excludedUsername))
+                .toList();
+        if (users.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+        List<Long> deleting = users.stream().map(UserReadOnlyDTO::getId).toList();
+        int refreshTokens = refreshTokenService.deleteAll(deleting);
+        userEventOutbox.recordBulk(UserEventType.DELETED, users);
+        int affected = userRepository.deleteAllByIds(deleting);
+        if (affected != users.size()) {
+            LOGGER.warn("Bulk delete removed {} of {} users, the rest were deleted concurrently", affected, users.size());
+        }
+        for (UserReadOnlyDTO user : users) {
+            tokenRevocationRegistry.revokeAfterCommit(user.getUsername());
+            userDetailsCache.evictAfterCommit(user.getUsername());
+        }
+        return new ChunkResult(affected, refreshTokens);
+    }
+
+    /**
+     * The next chunk of ids matching the specification, by keyset on the id, so that every chunk
+     * is an index range scan whether or not the previous chunks changed the matching rows.
+     */
+    private List<Long> findIds(Specification<User> specification, long afterId) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.select(root.<Long>get("id"));
+        Predicate after = criteriaBuilder.greaterThan(root.<Long>get("id"), afterId);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        query.where(predicate == null ? after : criteriaBuilder.and(predicate, after));
+        query.orderBy(criteriaBuilder.asc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(chunkSize).getResultList();
+    }
+
+    private interface ChunkOperation {
+        ChunkResult apply(List<Long> ids);
+    }
+
+    private record ChunkResult(int affected, int refreshTokens) {
+    }
+}
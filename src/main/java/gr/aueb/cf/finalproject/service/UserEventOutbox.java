@@ -0,0 +1,89 @@
+package gr.aueb.cf.finalproject.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.OutboxEvent;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes user lifecycle events into the outbox. Must join the transaction of the change,
+ * so that an event exists exactly when its change has been committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserEventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Mapper mapper;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param user the user after the change, flushed so that its id and version are final.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(UserEventType type, User user) {
+        outboxEventRepository.save(toOutboxEvent(type, user));
+    }
+
+    /**
+     * Records the events of many users as one JDBC batch, see {@link #recordBulk(UserEventType, List)}.
+     * @param users the users after the change, flushed so that their ids and versions are final.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(UserEventType type, List<User> users) {
+        recordBulk(type, users.stream().map(mapper::mapToUserReadOnlyDTO).toList());
+    }
+
+    /**
+     * Records the events of a bulk operation as one JDBC batch, since identity ids keep Hibernate from batching inserts.
+     * @param users the users after the change, as read back by the bulk operation.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBulk(UserEventType type, List<UserReadOnlyDTO> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (event_type, user_id, username, user_version, payload, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", users, users.size(), (statement, user) -> {
+            statement.setString(1, type.name());
+            statement.setLong(2, user.getId());
+            statement.setString(3, user.getUsername());
+            statement.setLong(4, user.getVersion());
+            statement.setString(5, toPayload(type, user));
+            statement.setTimestamp(6, now);
+        });
+    }
+
+    private OutboxEvent toOutboxEvent(UserEventType type, User user) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(type);
+        event.setUserId(user.getId());
+        event.setUsername(user.getUsername());
+        event.setUserVersion(user.getVersion() == null ? 0 : user.getVersion());
+        event.setPayload(toPayload(type, mapper.mapToUserReadOnlyDTO(user)));
+        return event;
+    }
+
+    private String toPayload(UserEventType type, UserReadOnlyDTO user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the user of a " + type + " event", e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package gr.aueb.cf.finalproject.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.finalproject.core.enums.ExportFormat;
+import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.model.static_data.Country;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Streams users to an output stream as NDJSON or CSV.
+ * Rows are read forward-only and selected straight into {@link UserReadOnlyDTO}, so no entity enters
+ * the persistence context and memory stays flat whatever the size of the users table.
+ * With row streaming on, the export statement gets the Integer.MIN_VALUE fetch size that makes MySQL
+ * Connector/J stream its result set row by row. Only this statement is affected: the shared connection URL
+ * needs no useCursorFetch, which would turn every statement of the pool into a server-side prepared one.
+ */
+@Service
+public class UserExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserExportService.class);
+    private static final String CSV_HEADER = "id,username,firstname,lastname,email,countryName,isActive";
+    private static final int FLUSH_EVERY = 1000;
+    // Connector/J streams the result set row by row for exactly this fetch size
+    private static final int ROW_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final Counter rowsCounter;
+    private final Timer exportTimer;
+
+    public UserExportService(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             @Value("${app.export.row-streaming:true}") boolean rowStreaming,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = rowStreaming ? ROW_STREAMING_FETCH_SIZE : fetchSize;
+        this.rowsCounter = Counter.builder("users.export.rows").register(meterRegistry);
+        this.exportTimer = Timer.builder("users.export.duration").register(meterRegistry);
+    }
+
+    /**
+     * Writes every user matching the specification, ordered by id.
+     * @return the number of exported users.
+     */
+    public long export(Specification<User> specification, ExportFormat format, OutputStream outputStream) {
+        long start = System.nanoTime();
+        Long exported = transactionTemplate.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            long rows = 0;
+            try (Stream<UserReadOnlyDTO> users = streamUsers(specification)) {
+                if (format == ExportFormat.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                Iterator<UserReadOnlyDTO> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    writeRow(writer, format, iterator.next());
+                    if (++rows % FLUSH_EVERY == 0) {
+                        writer.flush();
+                        rowsCounter.increment(FLUSH_EVERY);
+                    }
+                }
+                writer.flush();
+                rowsCounter.increment(rows % FLUSH_EVERY);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        });
+        long elapsed = System.nanoTime() - start;
+        exportTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        LOGGER.info("Exported {} users as {} in {} ms ({} rows/s)", exported, format, millis, exported * 1000 / millis);
+        return exported;
+    }
+
+    private Stream<UserReadOnlyDTO> streamUsers(Specification<User> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserReadOnlyDTO> query = criteriaBuilder.createQuery(UserReadOnlyDTO.class);
+        Root<User> root = query.from(User.class);
+        Join<User, Country> country = root.join("country");
+        query.select(criteriaBuilder.construct(UserReadOnlyDTO.class,
+                root.get("id"), root.get("username"), root.get("firstname"), root.get("lastname"),
+                root.get("email"), country.get("name"), criteriaBuilder.coalesce(root.<Boolean>get("isActive"), true),
+                root.get("version")));
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(criteriaBuilder.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private void writeRow(Writer writer, ExportFormat format, UserReadOnlyDTO user) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(user));
+        } else {
+            writer.write(String.valueOf(user.getId()));
+            writer.write(',');
+            writer.write(csv(user.getUsername()));
+            writer.write(',');
+            writer.write(csv(user.getFirstname()));
+            writer.write(',');
+            writer.write(csv(user.getLastname()));
+            writer.write(',');
+            writer.write(csv(user.getEmail()));
+            writer.write(',');
+            writer.write(csv(user.getCountryName()));
+            writer.write(',');
+            writer.write(String.valueOf(user.isActive()));
+        }
+        writer.write('\n');
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
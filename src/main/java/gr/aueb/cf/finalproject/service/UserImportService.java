@@ -0,0 +1,369 @@
+package gr.aueb.cf.finalproject.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.finalproject.authentication.PasswordHashingProperties;
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.UserImportResultDTO;
+import gr.aueb.cf.finalproject.dto.UserImportRowResultDTO;
+import gr.aueb.cf.finalproject.dto.UserInsertDTO;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users in bulk from a streamed JSON array or CSV document.
+ * Rows are handled in chunks: uniqueness is checked with one IN query per chunk and column,
+ * passwords are hashed in parallel and the chunk is inserted with JDBC batching.
+ * Every row gets its own result, a failing row never fails the rest of the import.
+ */
+@Service
+public class UserImportService implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserImportService.class);
+    private static final List<String> CSV_COLUMNS = List.of("username", "password", "firstname", "lastname", "email", "birthdate", "countryName");
+
+    private final UserRepository userRepository;
+    private final UserEventOutbox userEventOutbox;
+    private final Mapper mapper;
+    private final CountryRegistry countryRegistry;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService hashingExecutor;
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository, UserEventOutbox userEventOutbox, Mapper mapper, CountryRegistry countryRegistry,
+                             PasswordEncoder passwordEncoder, Validator validator, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager, PasswordHashingProperties passwordHashingProperties,
+                             @Value("${app.import.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userEventOutbox = userEventOutbox;
+        this.mapper = mapper;
+        this.countryRegistry = countryRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // each submitter waits for its hash, so the import never holds more hashing threads than it has submitters
+        // and logins keep the rest of the shared pool
+        this.hashingExecutor = Executors.newFixedThreadPool(passwordHashingProperties.resolveImportThreads());
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports a JSON array of {@link UserInsertDTO} objects, read one element at a time.
+     * @throws AppObjectInvalidArgumentException if the document is not a JSON array.
+     */
+    public UserImportResultDTO importJson(InputStream inputStream) throws AppObjectInvalidArgumentException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new AppObjectInvalidArgumentException("Import", "A JSON array of users is expected.");
+            }
+            return importRows(() -> {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    return ImportRow.of(objectMapper.treeToValue(node, UserInsertDTO.class));
+                } catch (IOException | IllegalArgumentException e) {
+                    return ImportRow.invalid(node.path("username").asText(null), "Malformed user.");
+                }
+            });
+        } catch (IOException e) {
+            throw new AppObjectInvalidArgumentException("Import", "Malformed JSON document.");
+        }
+    }
+
+    /**
+     * Imports a CSV document whose header names the columns
+     * username, password, firstname, lastname, email, birthdate (yyyy-MM-dd) and countryName, in any order.
+     * @throws AppObjectInvalidArgumentException if the header misses a column.
+     */
+    public UserImportResultDTO importCsv(InputStream inputStream) throws AppObjectInvalidArgumentException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new AppObjectInvalidArgumentException("Import", "The CSV header is missing.");
+            }
+            Map<String, Integer> header = new HashMap<>();
+            List<String> names = parseCsvLine(headerLine);
+            for (int i = 0; i < names.size(); i++) {
+                header.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : CSV_COLUMNS) {
+                if (!header.containsKey(column.toLowerCase(Locale.ROOT))) {
+                    throw new AppObjectInvalidArgumentException("Import", "The CSV header misses the " + column + " column.");
+                }
+            }
+            return importRows(() -> {
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.isBlank());
+                return line == null ? null : toImportRow(header, parseCsvLine(line));
+            });
+        } catch (IOException e) {
+            throw new AppObjectInvalidArgumentException("Import", "Malformed CSV document.");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        hashingExecutor.shutdown();
+    }
+
+    private UserImportResultDTO importRows(RowReader rowReader) throws IOException {
+        List<UserImportRowResultDTO> results = new ArrayList<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        long rowNumber = 0;
+        ImportRow row;
+        while ((row = rowReader.next()) != null) {
+            chunk.add(row.numbered(++rowNumber));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, results);
+        }
+        long imported = results.stream().filter(result -> result.getCode() == null).count();
+        LOGGER.info("Imported {} of {} users", imported, rowNumber);
+        return new UserImportResultDTO(rowNumber, imported, rowNumber - imported, results);
+    }
+
+    private void importChunk(List<ImportRow> chunk, List<UserImportRowResultDTO> results) {
+        List<ImportRow> candidates = new ArrayList<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRow row : chunk) {
+            UserImportRowResultDTO failure = validate(row, usernames, emails);
+            if (failure != null) {
+                results.add(failure);
+            } else {
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(usernames));
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(emails));
+        List<ImportRow> unique = new ArrayList<>();
+        for (ImportRow row : candidates) {
+            UserInsertDTO user = row.user();
+            if (existingUsernames.contains(user.getUsername())) {
+                results.add(UserImportRowResultDTO.failed(row.number(), user.getUsername(), "UsernameAlreadyExists", user.getUsername() + " already exists."));
+            } else if (existingEmails.contains(user.getEmail())) {
+                results.add(UserImportRowResultDTO.failed(row.number(), user.getUsername(), "EmailAlreadyExists", user.getEmail() + " already exists."));
+            } else {
+                unique.add(row);
+            }
+        }
+
+        List<CompletableFuture<String>> hashes = unique.stream()
+                .map(row -> CompletableFuture.supplyAsync(() -> passwordEncoder.encode(row.user().getPassword()), hashingExecutor))
+                .toList();
+        List<ImportRow> hashedRows = new ArrayList<>();
+        List<String> passwords = new ArrayList<>();
+        for (int i = 0; i < unique.size(); i++) {
+            ImportRow row = unique.get(i);
+            try {
+                passwords.add(hashes.get(i).join());
+                hashedRows.add(row);
+            } catch (CompletionException e) {
+                results.add(UserImportRowResultDTO.failed(row.number(), row.user().getUsername(), "PasswordHashingUnavailable", "Password could not be hashed, please retry."));
+            }
+        }
+        if (!hashedRows.isEmpty()) {
+            saveChunk(hashedRows, passwords, results);
+        }
+    }
+
+    private UserImportRowResultDTO validate(ImportRow row, Set<String> usernames, Set<String> emails) {
+        if (row.error() != null) {
+            return UserImportRowResultDTO.failed(row.number(), row.username(), "RowInvalidArgument", row.error());
+        }
+        UserInsertDTO user = row.user();
+        Set<ConstraintViolation<UserInsertDTO>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            return UserImportRowResultDTO.failed(row.number(), user.getUsername(), "Validation error",
+                    violations.stream().map(v -> v.getPropertyPath() + ": " + v.getMessage()).collect(Collectors.joining(", ")));
+        }
+        if (user.getPassword() == null) {
+            return UserImportRowResultDTO.failed(row.number(), user.getUsername(), "PasswordInvalidArgument", "Password is required.");
+        }
+        if (countryRegistry.findByName(user.getCountryName()).isEmpty()) {
+            return UserImportRowResultDTO.failed(row.number(), user.getUsername(), "CountryInvalidArgument", "Invalid country name.");
+        }
+        if (usernames.contains(user.getUsername())) {
+            return UserImportRowResultDTO.failed(row.number(), user.getUsername(), "UsernameAlreadyExists", user.getUsername() + " appears twice in the import.");
+        }
+        if (emails.contains(user.getEmail())) {
+            return UserImportRowResultDTO.failed(row.number(), user.getUsername(), "EmailAlreadyExists", user.getEmail() + " appears twice in the import.");
+        }
+        usernames.add(user.getUsername());
+        emails.add(user.getEmail());
+        return null;
+    }
+
+    /**
+     * Inserts the chunk in one transaction, batched by Hibernate. The entities are mapped inside it,
+     * so the country references they hold belong to the persistence context that saves them.
+     * If a concurrent writer took a username or email since the uniqueness check,
+     * the chunk is retried one row per transaction, each with a freshly mapped entity.
+     */
+    private void saveChunk(List<ImportRow> rows, List<String> passwords, List<UserImportRowResultDTO> results) {
+        try {
+            List<User> users = transactionTemplate.execute(status -> {
+                List<User> mapped = new ArrayList<>(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    mapped.add(toUser(rows.get(i).user(), passwords.get(i)));
+                }
+                userRepository.saveAll(mapped);
+                userRepository.flush();
+                userEventOutbox.recordAll(UserEventType.CREATED, mapped);
+                return mapped;
+            });
+            for (int i = 0; i < users.size(); i++) {
+                results.add(UserImportRowResultDTO.imported(rows.get(i).number(), users.get(i).getUsername(), users.get(i).getId()));
+            }
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.warn("Batch insert of {} users hit a unique constraint, retrying row by row", rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                UserInsertDTO row = rows.get(i).user();
+                String password = passwords.get(i);
+                try {
+                    User user = transactionTemplate.execute(status -> {
+                        User mapped = toUser(row, password);
+                        userRepository.saveAndFlush(mapped);
+                        userEventOutbox.record(UserEventType.CREATED, mapped);
+                        return mapped;
+                    });
+                    results.add(UserImportRowResultDTO.imported(rows.get(i).number(), user.getUsername(), user.getId()));
+                } catch (DataIntegrityViolationException ex) {
+                    results.add(UserImportRowResultDTO.failed(rows.get(i).number(), row.getUsername(), "UserAlreadyExists", "Username or email already exists."));
+                }
+            }
+        }
+    }
+
+    private User toUser(UserInsertDTO row, String password) {
+        User user = mapper.mapToUserEntity(row);
+        user.setPassword(password);
+        user.setIsActive(true);
+        return user;
+    }
+
+    private static ImportRow toImportRow(Map<String, Integer> header, List<String> values) {
+        String username = value(header, values, "username");
+        try {
+            String birthdate = value(header, values, "birthdate");
+            return ImportRow.of(new UserInsertDTO(
+                    username,
+                    value(header, values, "password"),
+                    value(header, values, "firstname"),
+                    value(header, values, "lastname"),
+                    value(header, values, "email"),
+                    birthdate == null || birthdate.isBlank() ? null : LocalDate.parse(birthdate.trim()),
+                    value(header, values, "countryname")));
+        } catch (DateTimeParseException e) {
+            return ImportRow.invalid(username, "Invalid birthdate.");
+        }
+    }
+
+    private static String value(Map<String, Integer> header, List<String> values, String column) {
+        int index = header.get(column.toLowerCase(Locale.ROOT));
+        return index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * Splits one CSV line, honouring double quoted fields with "" as an escaped quote.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        ImportRow next() throws IOException;
+    }
+
+    private record ImportRow(long number, UserInsertDTO user, String username, String error) {
+
+        static ImportRow of(UserInsertDTO user) {
+            return new ImportRow(0, user, user.getUsername(), null);
+        }
+
+        static ImportRow invalid(String username, String error) {
+            return new ImportRow(0, null, username, error);
+        }
+
+        ImportRow numbered(long number) {
+            return new ImportRow(number, user, username, error);
+        }
+    }
+}
@@ -1,54 +1,81 @@
 package gr.aueb.cf.finalproject.service;
 
+import gr.aueb.cf.finalproject.authentication.RefreshTokenService;
+import gr.aueb.cf.finalproject.authentication.UserDetailsCache;
+import gr.aueb.cf.finalproject.core.concurrency.RetryOnOptimisticLock;
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
 import gr.aueb.cf.finalproject.core.exceptions.AppObjectAlreadyExistsException;
 import gr.aueb.cf.finalproject.core.exceptions.AppObjectInvalidArgumentException;
-import gr.aueb.cf.finalproject.core.exceptions.AppObjectNotAuthorizedException;
 import gr.aueb.cf.finalproject.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectPreconditionFailedException;
+import gr.aueb.cf.finalproject.core.exceptions.AppServiceUnavailableException;
 import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.core.pagination.KeysetCursorCodec;
 import gr.aueb.cf.finalproject.dto.UserInsertDTO;
+import gr.aueb.cf.finalproject.dto.CountryReadOnlyDTO;
 import gr.aueb.cf.finalproject.dto.UserReadOnlyDTO;
+import gr.aueb.cf.finalproject.dto.UserSearchCriteria;
+import gr.aueb.cf.finalproject.dto.UserTableVersionDTO;
+import gr.aueb.cf.finalproject.dto.UserTokenClaimsDTO;
 import gr.aueb.cf.finalproject.dto.UserUpdateDTO;
+import gr.aueb.cf.finalproject.dto.UserWindowDTO;
 import gr.aueb.cf.finalproject.model.User;
 import gr.aueb.cf.finalproject.model.static_data.Country;
-import gr.aueb.cf.finalproject.repository.CountryRepository;
 import gr.aueb.cf.finalproject.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import gr.aueb.cf.finalproject.repository.UserSpecifications;
+import gr.aueb.cf.finalproject.security.TokenRevocationRegistry;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "user.service", histogram = true)
 public class UserService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+    private static final Set<String> SEARCH_SORT_FIELDS = Set.of("id", "username", "firstname", "lastname", "email", "createdAt");
     private final UserRepository userRepository;
     private final Mapper mapper;
-    private final CountryRepository countryRepository;
+    private final CountryRegistry countryRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final UserDetailsCache userDetailsCache;
+    private final KeysetCursorCodec keysetCursorCodec;
+    private final UniqueConstraintResolver uniqueConstraintResolver;
+    private final RefreshTokenService refreshTokenService;
+    private final UserEventOutbox userEventOutbox;
 
-    @Transactional(rollbackOn = Exception.class)
+    /**
+     * Inserts the user and lets the unique constraints on username and email detect duplicates,
+     * instead of querying for them first.
+     */
+    @Transactional(rollbackFor = Exception.class)
     public UserReadOnlyDTO saveUser(UserInsertDTO userInsertDTO)
     throws AppObjectAlreadyExistsException , AppObjectInvalidArgumentException {
-        Country country = countryRepository.findByName(userInsertDTO.getCountryName())
-                .orElseThrow(() -> new AppObjectInvalidArgumentException("Country","Invalid country name."));
-
-        if (userRepository.findByUsername(userInsertDTO.getUsername()).isPresent()) {
-            throw new AppObjectAlreadyExistsException("Username", userInsertDTO.getUsername() + " already exists.");
-        }
-
-        if (userRepository.findByEmail(userInsertDTO.getEmail()).isPresent()) {
-            throw new AppObjectAlreadyExistsException("Email", userInsertDTO.getEmail() + " already exists.");
+        if (countryRegistry.findByName(userInsertDTO.getCountryName()).isEmpty()) {
+            throw new AppObjectInvalidArgumentException("Country","Invalid country name.");
         }
 
         try {
@@ -57,8 +84,18 @@ public class UserService {
             user.setIsActive(true);
             // uncomment to make an admin, comment otherwise
 //            user.setRole(Role.ADMIN);
-            userRepository.save(user);
+            userRepository.saveAndFlush(user);
+            userEventOutbox.record(UserEventType.CREATED, user);
             return mapper.mapToUserReadOnlyDTO(user);
+        } catch (DataIntegrityViolationException e) {
+            AppObjectAlreadyExistsException alreadyExists = uniqueConstraintResolver.resolve(e, userInsertDTO.getUsername(), userInsertDTO.getEmail());
+            if (alreadyExists != null) {
+                throw alreadyExists;
+            }
+            LOGGER.error(e.getMessage());
+            throw new AppObjectInvalidArgumentException("Error saving user: ", "invalid argument");
+        } catch (AppServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error(e.getMessage());
             throw new AppObjectInvalidArgumentException("Error saving user: ", "invalid argument");
@@ -67,20 +104,28 @@ public class UserService {
 
     }
 
-    @Transactional(rollbackOn = Exception.class)
-    public UserReadOnlyDTO updateUser(String username,UserUpdateDTO userUpdateDTO)
-            throws AppObjectNotFoundException, AppObjectInvalidArgumentException, AppObjectAlreadyExistsException {
+    /**
+     * Updates the user. A taken email is detected by its unique constraint.
+     * Not retried when a concurrent writer commits first: the DTO replaces the whole row, so a retry would
+     * overwrite the winner with the stale copy. The {@link OptimisticLockingFailureException}
+     * reaches the client as a 409 instead, to read the user again.
+     * @param expectedVersion the version the client has read (If-Match), or null for an unconditional update.
+     * @return the claims of the updated user, so that a new token can be minted without reading the user again.
+     * @throws AppObjectPreconditionFailedException if the user is no longer at the expected version.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public UserTokenClaimsDTO updateUser(String username, UserUpdateDTO userUpdateDTO, Long expectedVersion)
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException, AppObjectAlreadyExistsException,
+            AppObjectPreconditionFailedException {
 
-        User user  = userRepository.findByUsername(username).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
-        if (userRepository.findByEmail(userUpdateDTO.getEmail()).isPresent()
-                && !user.getEmail().equals(userUpdateDTO.getEmail())) {
-            throw new AppObjectAlreadyExistsException("Email", userUpdateDTO.getEmail() + " already exists.");
-        }
+        User user  = userRepository.loadByUsername(username).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
+        checkVersion(user, expectedVersion);
         if (!(passwordEncoder.matches(userUpdateDTO.getOldPassword(), user.getPassword()))) {
             throw new AppObjectInvalidArgumentException("password", "password does not match.");
         }
-        Country country = countryRepository.findByName(userUpdateDTO.getCountryName())
-                .orElseThrow(() -> new AppObjectInvalidArgumentException("Country","Invalid country name."));
+        if (countryRegistry.findByName(userUpdateDTO.getCountryName()).isEmpty()) {
+            throw new AppObjectInvalidArgumentException("Country","Invalid country name.");
+        }
         if (Objects.equals(userUpdateDTO.getOldPassword(), userUpdateDTO.getPassword())) {
             throw new AppObjectAlreadyExistsException("Password","Password already exists.");
         }
@@ -91,67 +136,223 @@ public class UserService {
             } else if (userUpdateDTO.getOldPassword() != null && !userUpdateDTO.getOldPassword().isEmpty()) {
                 user.setPassword(passwordEncoder.encode(userUpdateDTO.getOldPassword()));
             }
-            userRepository.save(userToUpdate);
-            return mapper.mapToUserReadOnlyDTO(userToUpdate);
+            userRepository.saveAndFlush(userToUpdate);
+            userEventOutbox.record(UserEventType.UPDATED, userToUpdate);
+            userDetailsCache.evictAfterCommit(username);
+            return mapper.mapToUserTokenClaimsDTO(userToUpdate);
+        } catch (DataIntegrityViolationException e) {
+            AppObjectAlreadyExistsException alreadyExists = uniqueConstraintResolver.resolveUpdate(e, username, userUpdateDTO.getEmail());
+            if (alreadyExists != null) {
+                throw alreadyExists;
+            }
+            LOGGER.error(e.getMessage());
+            throw new AppObjectInvalidArgumentException("Error saving user: ", "invalid argument");
+        } catch (AppServiceUnavailableException | OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error(e.getMessage());
             throw new AppObjectInvalidArgumentException("Error saving user: ", "invalid argument");
         }
     }
 
-    @Transactional(rollbackOn = Exception.class)
-    public UserReadOnlyDTO setUserInactive(String username)
-            throws AppObjectNotFoundException, AppObjectInvalidArgumentException, AppObjectNotAuthorizedException {
+    /**
+     * Deactivates the user and revokes its tokens. Idempotent, so retried when a concurrent writer commits first.
+     * @param expectedVersion the version the client has read (If-Match), or null to deactivate unconditionally.
+     * @throws AppObjectPreconditionFailedException if the user is no longer at the expected version.
+     */
+    @RetryOnOptimisticLock
+    @Transactional(rollbackFor = Exception.class)
+    public UserReadOnlyDTO setUserInactive(String username, Long expectedVersion)
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException, AppObjectPreconditionFailedException {
 
-        User user  = userRepository.findByUsername(username).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
+        User user  = userRepository.loadByUsername(username).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
+        checkVersion(user, expectedVersion);
         try {
+            boolean wasActive = !Boolean.FALSE.equals(user.getIsActive());
             user.setIsActive(false);
-            userRepository.save(user);
+            userRepository.saveAndFlush(user);
+            if (wasActive) {
+                userEventOutbox.record(UserEventType.DEACTIVATED, user);
+            }
+            refreshTokenService.revokeAll(user);
+            tokenRevocationRegistry.revokeAfterCommit(username);
+            userDetailsCache.evictAfterCommit(username);
             return mapper.mapToUserReadOnlyDTO(user);
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error(e.getMessage());
             throw new AppObjectInvalidArgumentException("Error setting inactive user: ", "invalid argument");
         }
     }
 
-    @Transactional(rollbackOn = Exception.class)
-    public UserReadOnlyDTO setUserActive(String username)
-            throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
+    /**
+     * Activates the user. Idempotent, so retried when a concurrent writer commits first.
+     * @param expectedVersion the version the client has read (If-Match), or null to activate unconditionally.
+     * @throws AppObjectPreconditionFailedException if the user is no longer at the expected version.
+     */
+    @RetryOnOptimisticLock
+    @Transactional(rollbackFor = Exception.class)
+    public UserReadOnlyDTO setUserActive(String username, Long expectedVersion)
+            throws AppObjectNotFoundException, AppObjectInvalidArgumentException, AppObjectPreconditionFailedException {
 
-        User user  = userRepository.findByUsername(username).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
+        User user  = userRepository.loadByUsername(username).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
+        checkVersion(user, expectedVersion);
         try {
+            boolean wasInactive = Boolean.FALSE.equals(user.getIsActive());
             user.setIsActive(true);
-            userRepository.save(user);
+            userRepository.saveAndFlush(user);
+            if (wasInactive) {
+                userEventOutbox.record(UserEventType.ACTIVATED, user);
+            }
+            userDetailsCache.evictAfterCommit(username);
             return mapper.mapToUserReadOnlyDTO(user);
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error(e.getMessage());
             throw new AppObjectInvalidArgumentException("Error setting active user: ", "invalid argument");
         }
     }
 
-    @Transactional(rollbackOn = Exception.class)
+    private void checkVersion(User user, Long expectedVersion) throws AppObjectPreconditionFailedException {
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new AppObjectPreconditionFailedException("User", "The user has been modified since it was read.");
+        }
+    }
+
+    @Transactional(rollbackFor = Exception.class)
     public void deleteUser(Long id) throws AppObjectNotFoundException, AppObjectInvalidArgumentException {
 
         User user = userRepository.findById(id).orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
         try {
+            refreshTokenService.deleteAll(user);
+            userEventOutbox.record(UserEventType.DELETED, user);
             userRepository.delete(user);
+            tokenRevocationRegistry.revokeAfterCommit(user.getUsername());
+            userDetailsCache.evictAfterCommit(user.getUsername());
             mapper.mapToUserReadOnlyDTO(user);
         } catch (Exception e) {
             LOGGER.error(e.getMessage());
             throw new AppObjectInvalidArgumentException("Error deleting user: ", "invalid argument");
         }
     }
-    @Transactional
+    @Transactional(readOnly = true)
     public List<User> getUsersByCountry(Country country){
         return userRepository.findByCountry(country);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public Page<UserReadOnlyDTO> getPaginatedUsers(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<User> userPage = userRepository.findAll(pageable);
-        return userPage.map(mapper::mapToUserReadOnlyDTO);
+        return userRepository.findAllReadOnly(pageable);
+    }
+
+    /**
+     * Strong ETag for the user listings (page, keyset window and search). It changes with every
+     * insert, update and delete of a user and every change of the country names, and is computed
+     * from an aggregate probe instead of the listing itself.
+     */
+    @Transactional(readOnly = true)
+    public String getUsersVersion() {
+        UserTableVersionDTO version = userRepository.findTableVersion();
+        return "\"users-" + version.getCount() + "-" + version.getMaxId() + "-" + version.getLastUpdatedAt()
+                + "-" + version.getVersionSum() + "-" + countryRegistry.getVersion() + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public UserReadOnlyDTO getUser(String username) throws AppObjectNotFoundException {
+        return userRepository.findReadOnlyByUsername(username)
+                .orElseThrow(() -> new AppObjectNotFoundException("Username", "Username not found"));
     }
 
+    /**
+     * Searches users with the given filters, run as a single query in MySQL that reads straight into DTOs.
+     * @param sortBy one of the whitelisted sort fields, ties are broken by id.
+     * @throws AppObjectInvalidArgumentException if the country or the sort field is invalid.
+     */
+    @Transactional(readOnly = true)
+    public Page<UserReadOnlyDTO> searchUsers(UserSearchCriteria criteria, int page, int size, String sortBy, Sort.Direction direction)
+            throws AppObjectInvalidArgumentException {
+        if (!SEARCH_SORT_FIELDS.contains(sortBy)) {
+            throw new AppObjectInvalidArgumentException("Sort", "Unsupported sort field.");
+        }
+        Sort sort = Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+        return userRepository.findReadOnly(toSpecification(criteria), PageRequest.of(page, size, sort));
+    }
+
+    /**
+     * Combines the set filters of the criteria into one specification.
+     * @throws AppObjectInvalidArgumentException if the country name is unknown.
+     */
+    public Specification<User> toSpecification(UserSearchCriteria criteria) throws AppObjectInvalidArgumentException {
+        Specification<User> specification = UserSpecifications.all();
+        if (criteria.getCountryName() != null && !criteria.getCountryName().isBlank()) {
+            CountryReadOnlyDTO country = countryRegistry.findByName(criteria.getCountryName())
+                    .orElseThrow(() -> new AppObjectInvalidArgumentException("Country", "Invalid country name."));
+            specification = specification.and(UserSpecifications.hasCountryId(country.getId()));
+        }
+        if (criteria.getActive() != null) {
+            specification = specification.and(UserSpecifications.isActive(criteria.getActive()));
+        }
+        if (criteria.getLastnamePrefix() != null && !criteria.getLastnamePrefix().isBlank()) {
+            specification = specification.and(UserSpecifications.startsWith("lastname", criteria.getLastnamePrefix()));
+        }
+        if (criteria.getFirstnamePrefix() != null && !criteria.getFirstnamePrefix().isBlank()) {
+            specification = specification.and(UserSpecifications.startsWith("firstname", criteria.getFirstnamePrefix()));
+        }
+        if (criteria.getEmailPrefix() != null && !criteria.getEmailPrefix().isBlank()) {
+            specification = specification.and(UserSpecifications.startsWith("email", criteria.getEmailPrefix()));
+        }
+        if (criteria.getRole() != null) {
+            specification = specification.and(UserSpecifications.hasRole(criteria.getRole()));
+        }
+        if (criteria.getCreatedFrom() != null) {
+            specification = specification.and(UserSpecifications.createdFrom(criteria.getCreatedFrom()));
+        }
+        if (criteria.getCreatedTo() != null) {
+            specification = specification.and(UserSpecifications.createdBefore(criteria.getCreatedTo()));
+        }
+        return specification;
+    }
+
+    /**
+     * Reads a window of users with keyset pagination: seeks on the sort key instead of an OFFSET scan
+     * and runs no count query, so deep windows cost the same as the first one. The users are read straight into DTOs.
+     * @param cursor the cursor of a previous window, null for the first one.
+     * @param size the maximum number of users in the window.
+     * @param sortBy id or username, both backed by a unique index.
+     */
+    @Transactional(readOnly = true)
+    public UserWindowDTO getUsersWindow(String cursor, int size, String sortBy) throws AppObjectInvalidArgumentException {
+        Sort sort = switch (sortBy) {
+            case "id" -> Sort.by("id");
+            case "username" -> Sort.by("username").and(Sort.by("id"));
+            default -> throw new AppObjectInvalidArgumentException("Sort", "Unsupported sort key.");
+        };
+        KeysetScrollPosition position = cursor == null || cursor.isBlank()
+                ? ScrollPosition.keyset()
+                : keysetCursorCodec.decode(cursor);
+        if (!position.isInitial() && sort.stream().anyMatch(order -> !position.getKeys().containsKey(order.getProperty()))) {
+            throw new AppObjectInvalidArgumentException("Cursor", "The cursor belongs to another sort key.");
+        }
+        Window<UserReadOnlyDTO> window = userRepository.scrollReadOnly(position, sort, size);
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!window.isEmpty()) {
+            boolean forward = position.scrollsForward();
+            if (!forward || window.hasNext()) {
+                nextCursor = keysetCursorCodec.encode(keysOf(window, window.size() - 1), true);
+            }
+            if (!position.isInitial() && (forward || window.hasNext())) {
+                prevCursor = keysetCursorCodec.encode(keysOf(window, 0), false);
+            }
+        }
+        return new UserWindowDTO(window.getContent(), window.size(), nextCursor, prevCursor);
+    }
 
+    private static Map<String, Object> keysOf(Window<UserReadOnlyDTO> window, int index) {
+        return ((KeysetScrollPosition) window.positionAt(index)).getKeys();
+    }
 }
@@ -0,0 +1,242 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import gr.aueb.cf.finalproject.core.exceptions.AppTooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginRateLimiterTest {
+
+    private static final String IP = "10.0.0.1";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private SimpleMeterRegistry meterRegistry;
+    private LoginRateLimitProperties properties;
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new LoginRateLimitProperties();
+        // one attempt every 12 seconds, up to 5 at once
+        properties.setUsernameLimit(5);
+        properties.setUsernamePeriod(Duration.ofMinutes(1));
+        properties.setIpLimit(1000);
+        properties.setFreeFailures(3);
+        properties.setBackoffBase(Duration.ofSeconds(1));
+        properties.setBackoffMax(Duration.ofSeconds(5));
+        limiter = new LoginRateLimiter(properties, meterRegistry, clock::get);
+    }
+
+    @Test
+    void wholeBurstIsAdmittedAtOnceThenTheNextAttemptWaitsOneInterval() {
+        for (int i = 0; i < 5; i++) {
+            limiter.checkAttempt("alice", IP);
+        }
+
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP))
+                .isInstanceOfSatisfying(AppTooManyRequestsException.class, e -> {
+                    assertThat(e.getCode()).isEqualTo("LoginTooManyRequests");
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(12);
+                });
+        assertThat(rejections("username")).isEqualTo(1);
+    }
+
+    @Test
+    void oneAttemptIsRefilledPerInterval() {
+        for (int i = 0; i < 5; i++) {
+            limiter.checkAttempt("alice", IP);
+        }
+
+        advance(Duration.ofSeconds(11));
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP))
+                .isInstanceOfSatisfying(AppTooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+
+        advance(Duration.ofSeconds(1));
+        limiter.checkAttempt("alice", IP);
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP)).isInstanceOf(AppTooManyRequestsException.class);
+    }
+
+    @Test
+    void idleBucketRefillsToTheBurstButNotBeyond() {
+        for (int i = 0; i < 5; i++) {
+            limiter.checkAttempt("alice", IP);
+        }
+
+        advance(Duration.ofMinutes(10));
+
+        for (int i = 0; i < 5; i++) {
+            limiter.checkAttempt("alice", IP);
+        }
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP)).isInstanceOf(AppTooManyRequestsException.class);
+    }
+
+    @Test
+    void usernamesAreLimitedCaseInsensitively() {
+        for (int i = 0; i < 5; i++) {
+            limiter.checkAttempt(i % 2 == 0 ? "Alice" : "ALICE", IP);
+        }
+
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP)).isInstanceOf(AppTooManyRequestsException.class);
+        assertThatCode(() -> limiter.checkAttempt("bob", IP)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void clientIpIsLimitedAcrossUsernames() {
+        properties.setIpLimit(3);
+        limiter = new LoginRateLimiter(properties, meterRegistry, clock::get);
+
+        limiter.checkAttempt("alice", IP);
+        limiter.checkAttempt("bob", IP);
+        limiter.checkAttempt("carol", IP);
+
+        assertThatThrownBy(() -> limiter.checkAttempt("dave", IP)).isInstanceOf(AppTooManyRequestsException.class);
+        assertThatCode(() -> limiter.checkAttempt("dave", "10.0.0.2")).doesNotThrowAnyException();
+        assertThat(rejections("ip")).isEqualTo(1);
+    }
+
+    @Test
+    void clientsBehindATrustedProxyGetTheirOwnBucket() {
+        properties.setIpLimit(1);
+        properties.setTrustedProxies(List.of("10.0.0.0/8"));
+        limiter = new LoginRateLimiter(properties, meterRegistry, clock::get);
+        String loadBalancer = "10.1.2.3";
+
+        limiter.checkAttempt("alice", limiter.resolveClientIp(loadBalancer, "203.0.113.7"));
+        limiter.checkAttempt("bob", limiter.resolveClientIp(loadBalancer, "203.0.113.8"));
+
+        assertThatThrownBy(() -> limiter.checkAttempt("carol", limiter.resolveClientIp(loadBalancer, "203.0.113.7")))
+                .isInstanceOf(AppTooManyRequestsException.class);
+        assertThat(rejections("ip")).isEqualTo(1);
+    }
+
+    @Test
+    void clientIpIsTheRightmostHopThatIsNotATrustedProxy() {
+        properties.setTrustedProxies(List.of("10.0.0.0/8", "::1"));
+        limiter = new LoginRateLimiter(properties, meterRegistry, clock::get);
+
+        // the client made up the leftmost hop, the edge proxy appended the real address
+        assertThat(limiter.resolveClientIp("10.0.0.2", "1.1.1.1, 203.0.113.7, 10.0.0.9")).isEqualTo("203.0.113.7");
+        assertThat(limiter.resolveClientIp("::1", "203.0.113.7")).isEqualTo("203.0.113.7");
+        assertThat(limiter.resolveClientIp("10.0.0.2", "10.0.0.7, 10.0.0.9")).isEqualTo("10.0.0.7");
+        assertThat(limiter.resolveClientIp("10.0.0.2", null)).isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    void forwardedForFromAnUntrustedPeerIsIgnored() {
+        properties.setTrustedProxies(List.of("10.0.0.0/8"));
+        limiter = new LoginRateLimiter(properties, meterRegistry, clock::get);
+
+        assertThat(limiter.resolveClientIp("203.0.113.7", "10.0.0.1")).isEqualTo("203.0.113.7");
+        // no proxy is trusted unless configured
+        assertThat(new LoginRateLimiter(new LoginRateLimitProperties(), meterRegistry, clock::get)
+                .resolveClientIp("10.0.0.2", "203.0.113.7")).isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    void failuresPastTheFreeOnesBackOffExponentially() {
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("alice");
+        }
+        limiter.checkAttempt("alice", IP);
+
+        limiter.recordFailure("alice");
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP))
+                .isInstanceOfSatisfying(AppTooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        advance(Duration.ofSeconds(1));
+        limiter.checkAttempt("alice", IP);
+
+        limiter.recordFailure("alice");
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP))
+                .isInstanceOfSatisfying(AppTooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(2));
+        assertThat(rejections("backoff")).isEqualTo(2);
+    }
+
+    @Test
+    void backoffIsCappedAndClearedBySuccess() {
+        for (int i = 0; i < 10; i++) {
+            limiter.recordFailure("alice");
+        }
+        assertThatThrownBy(() -> limiter.checkAttempt("alice", IP))
+                .isInstanceOfSatisfying(AppTooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5));
+
+        limiter.recordSuccess("alice");
+
+        assertThatCode(() -> limiter.checkAttempt("alice", IP)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void disabledLimiterAdmitsEverything() {
+        properties.setEnabled(false);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.recordFailure("alice");
+            limiter.checkAttempt("alice", IP);
+        }
+        assertThat(meterRegistry.get("login.failures").counter().count()).isEqualTo(20);
+    }
+
+    @Test
+    void concurrentAttemptsNeverExceedTheBurst() throws Exception {
+        properties.setUsernameLimit(50);
+        limiter = new LoginRateLimiter(properties, meterRegistry, clock::get);
+        int threads = 16;
+        int attemptsPerThread = 25;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        try {
+                            limiter.checkAttempt("alice", IP);
+                            admitted.incrementAndGet();
+                        } catch (AppTooManyRequestsException e) {
+                            // over the limit
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the clock stands still, so nothing is refilled while the threads race on the bucket
+        assertThat(admitted.get()).isEqualTo(50);
+        assertThat(rejections("username")).isEqualTo(threads * attemptsPerThread - 50);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("login.rate_limit.rejected").tag("reason", reason).counter().count();
+    }
+}
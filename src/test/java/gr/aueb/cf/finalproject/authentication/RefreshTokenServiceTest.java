@@ -0,0 +1,107 @@
+package gr.aueb.cf.finalproject.authentication;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.finalproject.dto.AuthenticationResponseDTO;
+import gr.aueb.cf.finalproject.model.RefreshToken;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import gr.aueb.cf.finalproject.repository.RefreshTokenRepository;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("integration")
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CountryRepository countryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("refresher");
+        user.setPassword("{noop}not-a-real-hash");
+        user.setFirstname("Re");
+        user.setLastname("Fresher");
+        user.setEmail("refresher@example.com");
+        user.setBirthdate(LocalDate.of(1990, 1, 1));
+        user.setRole(Role.USER);
+        user.setIsActive(true);
+        user.setCountry(countryRepository.findByName("Greece").orElseThrow());
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "refresh_tokens", "outbox_events", "users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void refreshRotatesTheTokenWithinItsFamily() throws Exception {
+        String issued = refreshTokenService.issue(user);
+
+        AuthenticationResponseDTO response = refreshTokenService.refresh(issued);
+
+        assertThat(response.getToken()).isNotBlank();
+        assertThat(response.getRefreshToken()).isNotBlank().isNotEqualTo(issued);
+        List<RefreshToken> tokens = refreshTokenRepository.findAll();
+        assertThat(tokens).hasSize(2);
+        assertThat(tokens).extracting(RefreshToken::getFamilyId).containsOnly(tokens.get(0).getFamilyId());
+        assertThat(tokens).filteredOn(RefreshToken::isRevoked).hasSize(1);
+        // the successor is refreshed in turn
+        assertThat(refreshTokenService.refresh(response.getRefreshToken()).getRefreshToken()).isNotBlank();
+    }
+
+    @Test
+    void reuseOfARotatedTokenRevokesItsWholeFamily() throws Exception {
+        String issued = refreshTokenService.issue(user);
+        String successor = refreshTokenService.refresh(issued).getRefreshToken();
+        String otherLogin = refreshTokenService.issue(user);
+
+        assertThatThrownBy(() -> refreshTokenService.refresh(issued)).isInstanceOf(AppObjectNotAuthorizedException.class);
+
+        // the thief may hold the successor already, so it is revoked too
+        assertThatThrownBy(() -> refreshTokenService.refresh(successor)).isInstanceOf(AppObjectNotAuthorizedException.class);
+        // another family of the same user is not affected
+        assertThat(refreshTokenService.refresh(otherLogin).getRefreshToken()).isNotBlank();
+    }
+
+    @Test
+    void unknownTokensAndInactiveUsersAreRejected() throws Exception {
+        String issued = refreshTokenService.issue(user);
+
+        assertThatThrownBy(() -> refreshTokenService.refresh("not-a-token")).isInstanceOf(AppObjectNotAuthorizedException.class);
+
+        user.setIsActive(false);
+        userRepository.save(user);
+        assertThatThrownBy(() -> refreshTokenService.refresh(issued)).isInstanceOf(AppObjectNotAuthorizedException.class);
+    }
+}
@@ -0,0 +1,87 @@
+package gr.aueb.cf.finalproject.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+class UserSequenceAlignerTest {
+
+    private static final long HIGHEST_ID = 120;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UserSequenceAligner aligner;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("aligner-" + UUID.randomUUID())
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.batchUpdate("INSERT INTO users (id) VALUES (?)",
+                LongStream.rangeClosed(1, HIGHEST_ID).mapToObj(id -> new Object[]{id}).toList());
+        aligner = new UserSequenceAligner(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void firstPooledBlockStartsAboveTheHighestExistingId() {
+        createSequenceTable(1);
+
+        aligner.alignUserSequence();
+
+        long nextVal = nextVal();
+        // the pooled optimizer hands out next_val - allocation + 1 .. next_val
+        assertThat(nextVal - UserSequenceAligner.ALLOCATION_SIZE + 1).isGreaterThan(HIGHEST_ID);
+    }
+
+    @Test
+    void sequenceAtTheOldIdentityPositionIsMovedAWholeAllocation() {
+        createSequenceTable(HIGHEST_ID + 1);
+
+        aligner.alignUserSequence();
+
+        assertThat(nextVal()).isEqualTo(HIGHEST_ID + UserSequenceAligner.ALLOCATION_SIZE);
+    }
+
+    @Test
+    void sequenceAlreadyAheadIsLeftAlone() {
+        createSequenceTable(1000);
+
+        aligner.alignUserSequence();
+
+        assertThat(nextVal()).isEqualTo(1000);
+    }
+
+    @Test
+    void nativeSequenceIsIgnored() {
+        jdbcTemplate.execute("CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50");
+
+        assertThatCode(aligner::alignUserSequence).doesNotThrowAnyException();
+    }
+
+    private void createSequenceTable(long nextVal) {
+        jdbcTemplate.execute("CREATE TABLE users_seq (next_val BIGINT)");
+        jdbcTemplate.update("INSERT INTO users_seq (next_val) VALUES (?)", nextVal);
+    }
+
+    private long nextVal() {
+        return jdbcTemplate.queryForObject("SELECT next_val FROM users_seq", Long.class);
+    }
+}
@@ -0,0 +1,148 @@
+package gr.aueb.cf.finalproject.events;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import gr.aueb.cf.finalproject.repository.OutboxEventRepository;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import gr.aueb.cf.finalproject.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * The dispatcher of the integration profile is off, so every batch here is published
+ * by a dispatcher of its own, standing in for another node.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+class UserEventStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserEventStream userEventStream;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private Mapper mapper;
+    @Autowired
+    private OutboxProperties outboxProperties;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CountryRepository countryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private MvcResult stream;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setPassword("{noop}not-a-real-hash");
+        user.setFirstname("Alice");
+        user.setLastname("Liddell");
+        user.setEmail("alice@example.com");
+        user.setBirthdate(LocalDate.of(1990, 1, 1));
+        user.setRole(Role.USER);
+        user.setIsActive(true);
+        user.setCountry(countryRepository.findByName("Greece").orElseThrow());
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (stream != null) {
+            // completing the request closes the subscription
+            ((MockAsyncContext) stream.getRequest().getAsyncContext()).complete();
+        }
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "refresh_tokens", "outbox_events", "users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "ADMIN")
+    void batchPublishedByAnotherNodesDispatcherReachesTheLiveStream() throws Exception {
+        stream = mockMvc.perform(get("/api/admin/events/users"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        userService.setUserInactive("alice", null);
+        otherNode().dispatch();
+        userEventStream.tail();
+
+        long eventId = eventId("DEACTIVATED");
+        awaitContent("id:" + eventId + "\nevent:DEACTIVATED\n");
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "ADMIN")
+    void eventsReadAgainWithinTheLookBackAreSentOnce() throws Exception {
+        stream = mockMvc.perform(get("/api/admin/events/users"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        userService.setUserInactive("alice", null);
+        otherNode().dispatch();
+        userEventStream.tail();
+        userService.setUserActive("alice", null);
+        otherNode().dispatch();
+        userEventStream.tail();
+        userEventStream.tail();
+
+        awaitContent("event:ACTIVATED\n");
+        String content = stream.getResponse().getContentAsString();
+        String deactivated = "id:" + eventId("DEACTIVATED") + "\n";
+        assertThat(content.indexOf(deactivated)).isNotNegative().isEqualTo(content.lastIndexOf(deactivated));
+    }
+
+    private OutboxDispatcher otherNode() {
+        return new OutboxDispatcher(outboxEventRepository, mapper, new MemoryUserEventSink(outboxProperties),
+                outboxProperties, transactionManager, new SimpleMeterRegistry());
+    }
+
+    private long eventId(String type) {
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM outbox_events WHERE event_type = ?", Long.class, type);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Subscribers send from their own thread, so the event reaches the response shortly after the poll.
+     */
+    private void awaitContent(String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!stream.getResponse().getContentAsString().contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(stream.getResponse().getContentAsString()).contains(expected);
+    }
+}
@@ -0,0 +1,118 @@
+package gr.aueb.cf.finalproject.rest;
+
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import gr.aueb.cf.finalproject.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+class UserRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CountryRepository countryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setPassword("{noop}not-a-real-hash");
+        user.setFirstname("Alice");
+        user.setLastname("Liddell");
+        user.setEmail("alice@example.com");
+        user.setBirthdate(LocalDate.of(1990, 1, 1));
+        user.setRole(Role.USER);
+        user.setIsActive(true);
+        user.setCountry(countryRepository.findByName("Greece").orElseThrow());
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "refresh_tokens", "outbox_events", "users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @WithMockUser(username = "alice", authorities = "USER")
+    void staleIfMatchIsRejectedWithoutChangingTheUser() throws Exception {
+        String etag = mockMvc.perform(get("/api/user/alice"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // a concurrent writer deactivates and reactivates the user in between
+        userService.setUserInactive("alice", null);
+        userService.setUserActive("alice", null);
+
+        mockMvc.perform(put("/api/user/alice/deactivate").header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value("UserPreconditionFailed"));
+        assertThat(userRepository.findReadOnlyByUsername("alice").orElseThrow().isActive()).isTrue();
+    }
+
+    @Test
+    @WithMockUser(username = "alice", authorities = "USER")
+    void currentIfMatchIsAppliedAndAnswersTheNewETag() throws Exception {
+        mockMvc.perform(put("/api/user/alice/deactivate").header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        assertThat(userRepository.findReadOnlyByUsername("alice").orElseThrow().isActive()).isFalse();
+    }
+
+    @Test
+    void listingVersionChangesWhenAnUpdateLeavesUpdatedAtAsItWas() {
+        String before = userService.getUsersVersion();
+
+        // a write within the same timestamp tick, or from a node whose clock lags behind
+        jdbcTemplate.update("UPDATE users SET is_active = false, version = version + 1 WHERE username = 'alice'");
+        entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+
+        assertThat(userService.getUsersVersion()).isNotEqualTo(before);
+    }
+
+    @Test
+    @WithMockUser(username = "alice", authorities = "USER")
+    void foreignIfMatchNeverMatches() throws Exception {
+        mockMvc.perform(put("/api/user/alice/deactivate").header(HttpHeaders.IF_MATCH, "W/\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(userRepository.findReadOnlyByUsername("alice").orElseThrow().isActive()).isTrue();
+    }
+}
@@ -0,0 +1,67 @@
+package gr.aueb.cf.finalproject.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationRegistryTest {
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry(new JwtProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void withoutATransactionTokensAreRevokedRightAway() {
+        registry.revokeAfterCommit("alice");
+
+        assertThat(registry.isRevoked(issuedNow("alice"))).isTrue();
+        assertThat(registry.isRevoked(issuedNow("bob"))).isFalse();
+    }
+
+    @Test
+    void tokensAreOnlyRevokedOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        registry.revokeAfterCommit("alice");
+
+        // a login while the change is still in flight
+        VerifiedClaims mintedBeforeCommit = issuedNow("alice");
+        assertThat(registry.isRevoked(mintedBeforeCommit)).isFalse();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(registry.isRevoked(mintedBeforeCommit)).isTrue();
+    }
+
+    @Test
+    void aRolledBackChangeRevokesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        registry.revokeAfterCommit("alice");
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(registry.isRevoked(issuedNow("alice"))).isFalse();
+    }
+
+    private static VerifiedClaims issuedNow(String username) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return new VerifiedClaims(username, "USER", now, now.plusSeconds(900));
+    }
+}
@@ -0,0 +1,67 @@
+package gr.aueb.cf.finalproject.service;
+
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectAlreadyExistsException;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueConstraintResolverTest {
+
+    // no constraint name in the message, as on a schema created before the constraints were named
+    private static final DataIntegrityViolationException UNNAMED = new DataIntegrityViolationException("Duplicate entry");
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UniqueConstraintResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new UniqueConstraintResolver(userRepository, transactionManager);
+    }
+
+    @Test
+    void namedConstraintIsResolvedWithoutProbing() {
+        AppObjectAlreadyExistsException e = resolver.resolveUpdate(
+                new DataIntegrityViolationException("Duplicate entry for key 'UK_USERS_EMAIL'"), "alice", "bob@example.com");
+
+        assertThat(e.getCode()).isEqualTo("EmailAlreadyExists");
+        verify(userRepository, never()).existsByEmailAndUsernameNot(anyString(), anyString());
+    }
+
+    @Test
+    void updateProbeLeavesOutTheUpdatedUsersOwnEmail() {
+        when(userRepository.existsByEmailAndUsernameNot("alice@example.com", "alice")).thenReturn(false);
+
+        assertThat(resolver.resolveUpdate(UNNAMED, "alice", "alice@example.com")).isNull();
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void updateProbeFindsTheEmailOfAnotherUser() {
+        when(userRepository.existsByEmailAndUsernameNot("bob@example.com", "alice")).thenReturn(true);
+
+        assertThat(resolver.resolveUpdate(UNNAMED, "alice", "bob@example.com").getCode()).isEqualTo("EmailAlreadyExists");
+    }
+
+    @Test
+    void insertProbeChecksTheUsernameFirst() {
+        when(userRepository.existsByUsername("alice")).thenReturn(true);
+
+        assertThat(resolver.resolve(UNNAMED, "alice", "alice@example.com").getCode()).isEqualTo("UsernameAlreadyExists");
+    }
+}
@@ -0,0 +1,173 @@
+package gr.aueb.cf.finalproject.service;
+
+import gr.aueb.cf.finalproject.authentication.RefreshTokenService;
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.finalproject.dto.UserBulkRequestDTO;
+import gr.aueb.cf.finalproject.dto.UserBulkResultDTO;
+import gr.aueb.cf.finalproject.dto.UserSearchCriteria;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.CountryRepository;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs with app.bulk.chunk-size=3 from the integration profile.
+ */
+@SpringBootTest
+@ActiveProfiles("integration")
+class UserBulkServiceTest {
+
+    private static final String ADMIN = "admin";
+
+    @Autowired
+    private UserBulkService userBulkService;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CountryRepository countryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User admin;
+    private final List<User> greeks = new ArrayList<>();
+    private final List<User> italians = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        admin = save(ADMIN, Role.ADMIN, "Greece");
+        for (int i = 0; i < 7; i++) {
+            greeks.add(save("greek" + i, Role.USER, "Greece"));
+        }
+        for (int i = 0; i < 2; i++) {
+            italians.add(save("italian" + i, Role.USER, "Italy"));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "refresh_tokens", "outbox_events", "users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void deactivateByCriteriaWalksTheMatchesInChunksAndSkipsTheAdmin() throws Exception {
+        refreshTokenService.issue(greeks.get(0));
+        refreshTokenService.issue(greeks.get(1));
+        refreshTokenService.issue(italians.get(0));
+
+        UserBulkResultDTO result = userBulkService.deactivate(
+                new UserBulkRequestDTO(null, criteria("Greece", true)), ADMIN);
+
+        // admin and 7 users match, 3 per chunk
+        assertThat(result.getSelected()).isEqualTo(8);
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(result.getAffected()).isEqualTo(7);
+        assertThat(result.getRefreshTokens()).isEqualTo(2);
+        assertThat(isActive(admin)).isTrue();
+        assertThat(greeks).allSatisfy(user -> assertThat(isActive(user)).isFalse());
+        assertThat(italians).allSatisfy(user -> assertThat(isActive(user)).isTrue());
+        assertThat(events("DEACTIVATED")).isEqualTo(7);
+        assertThat(activeRefreshTokens()).isEqualTo(1);
+    }
+
+    @Test
+    void usersAlreadyInTheRequestedStateAreNotChangedAgain() throws Exception {
+        userBulkService.deactivate(new UserBulkRequestDTO(ids(greeks.get(0), greeks.get(1)), null), ADMIN);
+
+        UserBulkResultDTO result = userBulkService.deactivate(
+                new UserBulkRequestDTO(ids(greeks.get(0), greeks.get(1), greeks.get(2)), null), ADMIN);
+
+        assertThat(result.getSelected()).isEqualTo(3);
+        assertThat(result.getAffected()).isEqualTo(1);
+        assertThat(events("DEACTIVATED")).isEqualTo(3);
+        assertThat(userRepository.findReadOnlyByUsername("greek0").orElseThrow().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void deleteByIdsDeduplicatesChunksAndSkipsTheAdmin() throws Exception {
+        refreshTokenService.issue(greeks.get(3));
+        List<Long> ids = new ArrayList<>(ids(admin, greeks.get(3), greeks.get(4), greeks.get(5), greeks.get(6)));
+        ids.add(greeks.get(3).getId());
+        ids.add(Long.MAX_VALUE);
+
+        UserBulkResultDTO result = userBulkService.delete(new UserBulkRequestDTO(ids, null), ADMIN);
+
+        // 6 distinct ids in two chunks, the admin and the unknown id are left alone
+        assertThat(result.getSelected()).isEqualTo(6);
+        assertThat(result.getChunks()).isEqualTo(2);
+        assertThat(result.getAffected()).isEqualTo(4);
+        assertThat(result.getRefreshTokens()).isEqualTo(1);
+        assertThat(userRepository.existsByUsername(ADMIN)).isTrue();
+        assertThat(userRepository.existsByUsername("greek3")).isFalse();
+        assertThat(userRepository.existsByUsername("greek2")).isTrue();
+        assertThat(events("DELETED")).isEqualTo(4);
+    }
+
+    @Test
+    void idsAndCriteriaTogetherAreRejected() {
+        UserBulkRequestDTO request = new UserBulkRequestDTO(ids(greeks.get(0)), criteria("Greece", true));
+
+        assertThatThrownBy(() -> userBulkService.delete(request, ADMIN)).isInstanceOf(AppObjectInvalidArgumentException.class);
+        assertThat(userRepository.count()).isEqualTo(10);
+    }
+
+    private User save(String username, Role role, String countryName) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("{noop}not-a-real-hash");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setEmail(username + "@example.com");
+        user.setBirthdate(LocalDate.of(1990, 1, 1));
+        user.setRole(role);
+        user.setIsActive(true);
+        user.setCountry(countryRepository.findByName(countryName).orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private static UserSearchCriteria criteria(String countryName, Boolean active) {
+        UserSearchCriteria criteria = new UserSearchCriteria();
+        criteria.setCountryName(countryName);
+        criteria.setActive(active);
+        return criteria;
+    }
+
+    private static List<Long> ids(User... users) {
+        return Arrays.stream(users).map(User::getId).toList();
+    }
+
+    private boolean isActive(User user) {
+        return userRepository.findReadOnlyByUsername(user.getUsername()).orElseThrow().isActive();
+    }
+
+    private long events(String type) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = ?", Long.class, type);
+        return count == null ? 0 : count;
+    }
+
+    private long activeRefreshTokens() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens WHERE revoked_at IS NULL", Long.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,209 @@
+package gr.aueb.cf.finalproject.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.finalproject.authentication.PasswordHashingProperties;
+import gr.aueb.cf.finalproject.core.enums.Role;
+import gr.aueb.cf.finalproject.core.enums.UserEventType;
+import gr.aueb.cf.finalproject.core.mapper.Mapper;
+import gr.aueb.cf.finalproject.dto.CountryReadOnlyDTO;
+import gr.aueb.cf.finalproject.dto.UserImportResultDTO;
+import gr.aueb.cf.finalproject.dto.UserImportRowResultDTO;
+import gr.aueb.cf.finalproject.dto.UserInsertDTO;
+import gr.aueb.cf.finalproject.model.User;
+import gr.aueb.cf.finalproject.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    private static final String HEADER = "username,password,firstname,lastname,email,birthdate,countryName";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserEventOutbox userEventOutbox;
+    @Mock
+    private Mapper mapper;
+    @Mock
+    private CountryRegistry countryRegistry;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong ids = new AtomicLong();
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        when(countryRegistry.findByName("Greece")).thenReturn(Optional.of(new CountryReadOnlyDTO(1, "Greece", "GR")));
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed:" + invocation.getArgument(0));
+        when(mapper.mapToUserEntity(any())).thenAnswer(invocation -> toUser(invocation.getArgument(0)));
+        lenient().when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+        lenient().when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        userImportService = new UserImportService(userRepository, userEventOutbox, mapper, countryRegistry, passwordEncoder,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), transactionManager,
+                new PasswordHashingProperties(), 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.destroy();
+    }
+
+    @Test
+    void duplicatesWithinOneFileFailOnlyTheirLaterRows() throws Exception {
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        UserImportResultDTO result = importCsv(
+                row("alice", "alice@example.com"),
+                row("bob", "bob@example.com"),
+                row("alice", "other@example.com"),
+                row("dave", "bob@example.com"));
+
+        assertThat(result.getTotal()).isEqualTo(4);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(rowResult(result, 1).getId()).isNotNull();
+        assertThat(rowResult(result, 2).getId()).isNotNull();
+        assertThat(rowResult(result, 3).getCode()).isEqualTo("UsernameAlreadyExists");
+        assertThat(rowResult(result, 3).getMessage()).contains("appears twice");
+        assertThat(rowResult(result, 4).getCode()).isEqualTo("EmailAlreadyExists");
+        verify(userRepository).saveAll(argThat((List<User> users) -> users.size() == 2));
+        verify(userEventOutbox).recordAll(eq(UserEventType.CREATED), argThat((List<User> users) -> users.size() == 2));
+    }
+
+    @Test
+    void rowsAlreadyInTheDatabaseAreReportedWithoutInserting() throws Exception {
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of("alice"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("taken@example.com"));
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        UserImportResultDTO result = importCsv(
+                row("alice", "alice@example.com"),
+                row("bob", "taken@example.com"),
+                row("carol", "carol@example.com"));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(rowResult(result, 1).getCode()).isEqualTo("UsernameAlreadyExists");
+        assertThat(rowResult(result, 2).getCode()).isEqualTo("EmailAlreadyExists");
+        assertThat(rowResult(result, 3).getId()).isNotNull();
+    }
+
+    @Test
+    void batchHittingAUniqueConstraintFallsBackToOneRowPerTransaction() throws Exception {
+        // a concurrent writer took bob after the uniqueness check, the batch leaves ids and versions behind
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            assignIds(invocation.getArgument(0));
+            throw new DataIntegrityViolationException("uk_users_username");
+        });
+        List<String> unsavedOnRetry = new ArrayList<>();
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getId() == null && user.getVersion() == null) {
+                unsavedOnRetry.add(user.getUsername());
+            }
+            if (user.getUsername().equals("bob")) {
+                throw new DataIntegrityViolationException("uk_users_username");
+            }
+            user.setId(ids.incrementAndGet());
+            user.setVersion(0L);
+            return user;
+        });
+
+        UserImportResultDTO result = importCsv(
+                row("alice", "alice@example.com"),
+                row("bob", "bob@example.com"),
+                row("carol", "carol@example.com"));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(rowResult(result, 1).getId()).isNotNull();
+        assertThat(rowResult(result, 2).getCode()).isEqualTo("UserAlreadyExists");
+        assertThat(rowResult(result, 3).getId()).isNotNull();
+        assertThat(unsavedOnRetry).containsExactly("alice", "bob", "carol");
+        verify(userEventOutbox, never()).recordAll(any(), anyList());
+        verify(userEventOutbox, times(2)).record(eq(UserEventType.CREATED), any(User.class));
+    }
+
+    @Test
+    void entitiesAreMappedInsideTheInsertTransaction() throws Exception {
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        importCsv(row("alice", "alice@example.com"));
+
+        // the mapper takes a reference to the country, which must belong to the saving persistence context
+        InOrder inOrder = inOrder(transactionManager, mapper, userRepository);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(mapper).mapToUserEntity(any());
+        inOrder.verify(userRepository).saveAll(anyList());
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    private UserImportResultDTO importCsv(String... rows) throws Exception {
+        String csv = HEADER + "\n" + String.join("\n", rows) + "\n";
+        return userImportService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String row(String username, String email) {
+        return String.join(",", username, "Secret#123", "First", "Last", email, "1990-01-01", "Greece");
+    }
+
+    private static UserImportRowResultDTO rowResult(UserImportResultDTO result, long row) {
+        return result.getRows().stream()
+                .filter(rowResult -> rowResult.getRow() == row)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<User> assignIds(List<User> users) {
+        for (User user : users) {
+            user.setId(ids.incrementAndGet());
+            user.setVersion(0L);
+        }
+        return users;
+    }
+
+    private static User toUser(UserInsertDTO dto) {
+        User user = new User();
+        user.setUsername(dto.getUsername());
+        user.setPassword(dto.getPassword());
+        user.setFirstname(dto.getFirstname());
+        user.setLastname(dto.getLastname());
+        user.setEmail(dto.getEmail());
+        user.setBirthdate(dto.getBirthdate());
+        user.setRole(Role.USER);
+        return user;
+    }
+}